@@ -0,0 +1,38 @@
+package fr.cpe.sdmis.config;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Bus de diffusion SSE entre instances : un exchange fanout commun et une file anonyme par instance
+ * (exclusive, supprimée à l'arrêt), sur la connexion RabbitMQ de {@link RabbitConfig}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sdmis.sse.cluster.actif", havingValue = "true")
+public class SseClusterRabbitConfig {
+
+    @Value("${sdmis.sse.cluster.exchange}")
+    private String exchange;
+
+    @Bean
+    public FanoutExchange sseDiffusionExchange() {
+        return new FanoutExchange(exchange, true, false);
+    }
+
+    @Bean
+    public Queue sseDiffusionQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding sseDiffusionBinding(Queue sseDiffusionQueue, FanoutExchange sseDiffusionExchange) {
+        return BindingBuilder.bind(sseDiffusionQueue).to(sseDiffusionExchange);
+    }
+}
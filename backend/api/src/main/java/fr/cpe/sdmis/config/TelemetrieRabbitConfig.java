@@ -0,0 +1,54 @@
+package fr.cpe.sdmis.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * File de télémétrie optionnelle : les trames sont consommées par lots de {@code taille-lot} messages,
+ * acquittés en une fois une fois le lot écrit en base.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sdmis.telemetrie.amqp.actif", havingValue = "true")
+public class TelemetrieRabbitConfig {
+
+    @Value("${sdmis.telemetrie.amqp.file}")
+    private String telemetrieQueue;
+
+    @Value("${sdmis.telemetrie.amqp.prefetch:500}")
+    private int prefetch;
+
+    @Value("${sdmis.telemetrie.amqp.taille-lot:200}")
+    private int tailleLot;
+
+    @Value("${sdmis.telemetrie.amqp.attente-lot-ms:100}")
+    private long attenteLotMs;
+
+    @Bean
+    public Queue telemetrieQueue() {
+        return new Queue(telemetrieQueue, true);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory telemetrieListenerContainerFactory(ConnectionFactory connectionFactory,
+                                                                                   Jackson2JsonMessageConverter converter) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(converter);
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(tailleLot);
+        factory.setPrefetchCount(Math.max(prefetch, tailleLot));
+        // Un lot incomplet est livré après ce délai sans nouveau message
+        factory.setReceiveTimeout(attenteLotMs);
+        factory.setConcurrentConsumers(1);
+        return factory;
+    }
+}
@@ -1,19 +1,25 @@
 package fr.cpe.sdmis.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.cpe.sdmis.dto.EvenementCreateRequest;
 import fr.cpe.sdmis.dto.EvenementResponse;
 import fr.cpe.sdmis.dto.EvenementSnapshotResponse;
 import fr.cpe.sdmis.dto.EvenementUpdateRequest;
+import fr.cpe.sdmis.dto.PageResponse;
+import fr.cpe.sdmis.repository.Pagination;
 import fr.cpe.sdmis.service.EvenementService;
 import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.UUID;
@@ -22,9 +28,13 @@ import java.util.UUID;
 @RequestMapping("/api/evenements")
 public class EvenementController {
     private final EvenementService evenementService;
+    private final Pagination pagination;
+    private final ObjectMapper objectMapper;
 
-    public EvenementController(EvenementService evenementService) {
+    public EvenementController(EvenementService evenementService, Pagination pagination, ObjectMapper objectMapper) {
         this.evenementService = evenementService;
+        this.pagination = pagination;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -45,6 +55,19 @@ public class EvenementController {
         return evenementService.listEvenements();
     }
 
+    @GetMapping(params = {"limite", "flux!=true"})
+    @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
+    public PageResponse<EvenementResponse> page(@RequestParam("limite") int limite,
+                                                @RequestParam(value = "apres", required = false) String apres) {
+        return evenementService.listEvenements(apres, pagination.limite(limite));
+    }
+
+    @GetMapping(params = "flux=true")
+    @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
+    public ResponseEntity<StreamingResponseBody> flux() {
+        return FluxJson.tableau(objectMapper, evenementService::parcourirEvenements);
+    }
+
     @GetMapping("/snapshots")
     @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation','API_Terrain')")
     public List<EvenementSnapshotResponse> listSnapshots() {
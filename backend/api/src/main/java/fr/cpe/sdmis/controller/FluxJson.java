@@ -0,0 +1,40 @@
+package fr.cpe.sdmis.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Réponse JSON écrite ligne à ligne pendant le parcours de la base : le tableau n'est jamais matérialisé,
+ * la mémoire reste bornée par le lot du driver et le tampon de sortie.
+ */
+final class FluxJson {
+    private FluxJson() {
+    }
+
+    static <T> ResponseEntity<StreamingResponseBody> tableau(ObjectMapper objectMapper, Consumer<Consumer<T>> parcours) {
+        StreamingResponseBody corps = sortie -> {
+            try (JsonGenerator generateur = objectMapper.createGenerator(sortie)) {
+                generateur.writeStartArray();
+                parcours.accept(element -> {
+                    try {
+                        generateur.writeObject(element);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generateur.writeEndArray();
+            } catch (UncheckedIOException e) {
+                // Client parti en cours de route : l'exception interrompt le parcours et libère le curseur
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(corps);
+    }
+}
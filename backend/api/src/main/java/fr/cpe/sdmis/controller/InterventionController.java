@@ -1,12 +1,20 @@
 package fr.cpe.sdmis.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import fr.cpe.sdmis.dto.InterventionResponse;
 import fr.cpe.sdmis.dto.InterventionSnapshotResponse;
+import fr.cpe.sdmis.dto.PageResponse;
 import fr.cpe.sdmis.repository.InterventionRepository;
+import fr.cpe.sdmis.repository.Pagination;
+import fr.cpe.sdmis.repository.VersionsCollections;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -15,9 +23,16 @@ import java.util.List;
 public class InterventionController {
 
     private final InterventionRepository interventionRepository;
+    private final VersionsCollections versions;
+    private final Pagination pagination;
+    private final ObjectMapper objectMapper;
 
-    public InterventionController(InterventionRepository interventionRepository) {
+    public InterventionController(InterventionRepository interventionRepository, VersionsCollections versions,
+                                  Pagination pagination, ObjectMapper objectMapper) {
         this.interventionRepository = interventionRepository;
+        this.versions = versions;
+        this.pagination = pagination;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
@@ -26,15 +41,54 @@ public class InterventionController {
         return interventionRepository.findAll();
     }
 
+    @GetMapping(params = {"limite", "flux!=true"})
+    @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
+    public PageResponse<InterventionResponse> page(@RequestParam("limite") int limite,
+                                                   @RequestParam(value = "apres", required = false) String apres) {
+        return interventionRepository.findPage(apres, pagination.limite(limite));
+    }
+
+    @GetMapping(params = "flux=true")
+    @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
+    public ResponseEntity<StreamingResponseBody> flux() {
+        return FluxJson.tableau(objectMapper, interventionRepository::parcourir);
+    }
+
     @GetMapping("/terminees")
     @PreAuthorize("hasAnyRole('API_Admin','API_Terrain','API_Simulation')")
-    public List<InterventionResponse> terminees() {
-        return interventionRepository.findTerminees();
+    public ResponseEntity<List<InterventionResponse>> terminees(WebRequest request) {
+        String etag = versions.etag(VersionsCollections.INTERVENTIONS);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(interventionRepository.findTerminees());
+    }
+
+    @GetMapping(value = "/terminees", params = {"limite", "flux!=true"})
+    @PreAuthorize("hasAnyRole('API_Admin','API_Terrain','API_Simulation')")
+    public ResponseEntity<PageResponse<InterventionResponse>> termineesPage(@RequestParam("limite") int limite,
+                                                                           @RequestParam(value = "apres", required = false) String apres,
+                                                                           WebRequest request) {
+        String etag = versions.etag(VersionsCollections.INTERVENTIONS);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(interventionRepository.findTermineesPage(apres, pagination.limite(limite)));
+    }
+
+    @GetMapping(value = "/terminees", params = "flux=true")
+    @PreAuthorize("hasAnyRole('API_Admin','API_Terrain','API_Simulation')")
+    public ResponseEntity<StreamingResponseBody> termineesFlux() {
+        return FluxJson.tableau(objectMapper, interventionRepository::parcourirTerminees);
     }
 
     @GetMapping("/snapshots")
     @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation','API_Terrain')")
-    public List<InterventionSnapshotResponse> snapshots() {
-        return interventionRepository.findSnapshots();
+    public ResponseEntity<List<InterventionSnapshotResponse>> snapshots(WebRequest request) {
+        String etag = versions.etag(VersionsCollections.INTERVENTIONS);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(interventionRepository.findSnapshots());
     }
 }
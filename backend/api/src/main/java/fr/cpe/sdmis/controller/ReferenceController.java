@@ -5,15 +5,21 @@ import fr.cpe.sdmis.dto.SeveriteEchelleResponse;
 import fr.cpe.sdmis.dto.TypeEvenementResponse;
 import fr.cpe.sdmis.repository.CaserneRepository;
 import fr.cpe.sdmis.repository.EquipementRepository;
+import fr.cpe.sdmis.repository.ReferenceCache;
 import fr.cpe.sdmis.repository.SeveriteRepository;
 import fr.cpe.sdmis.repository.TypeEvenementRepository;
+import fr.cpe.sdmis.repository.VersionsCollections;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/references")
@@ -22,44 +28,66 @@ public class ReferenceController {
     private final TypeEvenementRepository typeEvenementRepository;
     private final CaserneRepository caserneRepository;
     private final EquipementRepository equipementRepository;
+    private final VersionsCollections versions;
+    private final ReferenceCache referenceCache;
 
     public ReferenceController(SeveriteRepository severiteRepository,
                                TypeEvenementRepository typeEvenementRepository,
                                CaserneRepository caserneRepository,
-                               EquipementRepository equipementRepository) {
+                               EquipementRepository equipementRepository,
+                               VersionsCollections versions,
+                               ReferenceCache referenceCache) {
         this.severiteRepository = severiteRepository;
         this.typeEvenementRepository = typeEvenementRepository;
         this.caserneRepository = caserneRepository;
         this.equipementRepository = equipementRepository;
+        this.versions = versions;
+        this.referenceCache = referenceCache;
     }
 
     @GetMapping("/severites")
     @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
-    public List<SeveriteResponse> severites() {
-        return severiteRepository.findAll();
+    public ResponseEntity<List<SeveriteResponse>> severites(WebRequest request) {
+        return conditionnel(request, severiteRepository::findAll);
     }
 
     @GetMapping("/severites/echelles")
     @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
-    public List<SeveriteEchelleResponse> severiteEchelles() {
-        return severiteRepository.findEchelles();
+    public ResponseEntity<List<SeveriteEchelleResponse>> severiteEchelles(WebRequest request) {
+        return conditionnel(request, severiteRepository::findEchelles);
     }
 
     @GetMapping("/types-evenement")
     @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
-    public List<TypeEvenementResponse> typesEvenement() {
-        return typeEvenementRepository.findAll();
+    public ResponseEntity<List<TypeEvenementResponse>> typesEvenement(WebRequest request) {
+        return conditionnel(request, typeEvenementRepository::findAll);
     }
 
     @GetMapping("/casernes")
     @PreAuthorize("hasAnyRole('API_Admin','API_Simulation','API_Operateur')")
-    public List<Map<String, Object>> casernes() {
-        return caserneRepository.findAll();
+    public ResponseEntity<List<Map<String, Object>>> casernes(WebRequest request) {
+        return conditionnel(request, caserneRepository::findAll);
     }
 
     @GetMapping("/equipements")
     @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
-    public List<Map<String, Object>> equipements() {
-        return equipementRepository.findAll();
+    public ResponseEntity<List<Map<String, Object>>> equipements(WebRequest request) {
+        return conditionnel(request, equipementRepository::findAll);
+    }
+
+    @PostMapping("/invalider")
+    @PreAuthorize("hasRole('API_Admin')")
+    public ResponseEntity<Void> invalider() {
+        referenceCache.invalider();
+        return ResponseEntity.noContent().build();
+    }
+
+    // Les tables de référence ne sont pas modifiées par l'API : l'ETag ne change qu'au redémarrage ou sur invalidation
+    private <T> ResponseEntity<T> conditionnel(WebRequest request, Supplier<T> lecture) {
+        String etag = versions.etag(VersionsCollections.REFERENCES);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(lecture.get());
     }
 }
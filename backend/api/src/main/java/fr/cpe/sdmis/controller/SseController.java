@@ -1,12 +1,25 @@
 package fr.cpe.sdmis.controller;
 
+import fr.cpe.sdmis.dto.SseAbonneResponse;
+import fr.cpe.sdmis.dto.SseViewportRequest;
 import fr.cpe.sdmis.service.SdmisSseService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.security.access.prepost.PreAuthorize;
 
+import java.util.List;
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/sdmis")
 public class SseController {
@@ -19,7 +32,36 @@ public class SseController {
 
     @GetMapping(value = "/sse", produces = "text/event-stream")
     @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation','API_Terrain')")
-    public SseEmitter sse() {
-        return sseService.subscribe();
+    public SseEmitter sse(Authentication authentication,
+                          @RequestParam(value = "types", required = false) List<String> types,
+                          @RequestParam(value = "vehicules", required = false) List<UUID> vehicules,
+                          @RequestParam(value = "evenements", required = false) List<UUID> evenements,
+                          @RequestParam(value = "bbox", required = false) List<Double> bbox,
+                          @RequestParam(value = "mode", required = false, defaultValue = "complet") String mode,
+                          @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return sseService.subscribe(
+                authentication.getName(),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList(),
+                types != null ? types : List.of(),
+                vehicules != null ? vehicules : List.of(),
+                evenements != null ? evenements : List.of(),
+                bbox,
+                "delta".equals(mode),
+                lastEventId);
+    }
+
+    @GetMapping("/sse/abonnes")
+    @PreAuthorize("hasRole('API_Admin')")
+    public List<SseAbonneResponse> abonnes() {
+        return sseService.abonnes();
+    }
+
+    @PutMapping("/sse/{id}/viewport")
+    @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation','API_Terrain')")
+    public ResponseEntity<Void> viewport(Authentication authentication, @PathVariable("id") UUID id,
+                                         @RequestBody SseViewportRequest request) {
+        // Un autre utilisateur que celui qui a ouvert la connexion reçoit 403 (AccessDeniedException)
+        sseService.majViewport(authentication.getName(), id, request.latMin(), request.lonMin(), request.latMax(), request.lonMax());
+        return ResponseEntity.noContent().build();
     }
 }
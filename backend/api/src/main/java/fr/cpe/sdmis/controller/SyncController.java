@@ -0,0 +1,25 @@
+package fr.cpe.sdmis.controller;
+
+import fr.cpe.sdmis.dto.SyncResponse;
+import fr.cpe.sdmis.service.SyncService;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/sync")
+public class SyncController {
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    @GetMapping
+    @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation','API_Terrain')")
+    public SyncResponse sync(@RequestParam(value = "since", required = false) Long since) {
+        return syncService.depuis(since);
+    }
+}
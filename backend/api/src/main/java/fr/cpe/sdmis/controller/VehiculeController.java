@@ -2,6 +2,7 @@ package fr.cpe.sdmis.controller;
 
 import fr.cpe.sdmis.dto.VehiculeOperationnelResponse;
 import fr.cpe.sdmis.dto.VehiculeUpdateRequest;
+import fr.cpe.sdmis.dto.VehiculeUpdateResultResponse;
 import fr.cpe.sdmis.dto.VehiculeIdentResponse;
 import fr.cpe.sdmis.dto.VehiculeEnRouteResponse;
 import fr.cpe.sdmis.dto.VehiculeStatusUpdateRequest;
@@ -9,18 +10,33 @@ import fr.cpe.sdmis.dto.VehiculeSnapshotResponse;
 import fr.cpe.sdmis.dto.EquipementVehiculeResponse;
 import fr.cpe.sdmis.dto.VehiculeCreateRequest;
 import fr.cpe.sdmis.dto.AgentVehiculeResponse;
+import fr.cpe.sdmis.dto.PositionHistoriqueResponse;
+import fr.cpe.sdmis.service.MicrobitTrameParser;
 import fr.cpe.sdmis.service.VehiculeService;
 import fr.cpe.sdmis.repository.AgentRepository;
+import fr.cpe.sdmis.repository.FlotteEtatStore;
+import fr.cpe.sdmis.repository.VersionsCollections;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -29,12 +45,24 @@ import java.util.UUID;
 @RequestMapping("/api/vehicules")
 public class VehiculeController {
 
+    private static final int OCTETS_MAX_PAR_TRAME = 256;
+
     private final VehiculeService vehiculeService;
     private final AgentRepository agentRepository;
+    private final MicrobitTrameParser trameParser;
+    private final VersionsCollections versions;
+    private final int tailleLotMax;
 
-    public VehiculeController(VehiculeService vehiculeService, AgentRepository agentRepository) {
+    public VehiculeController(VehiculeService vehiculeService,
+                              AgentRepository agentRepository,
+                              MicrobitTrameParser trameParser,
+                              VersionsCollections versions,
+                              @Value("${sdmis.telemetrie.lot.taille-max:1000}") int tailleLotMax) {
         this.vehiculeService = vehiculeService;
         this.agentRepository = agentRepository;
+        this.trameParser = trameParser;
+        this.versions = versions;
+        this.tailleLotMax = tailleLotMax;
     }
 
     @GetMapping("/operationnels")
@@ -49,6 +77,37 @@ public class VehiculeController {
         vehiculeService.updateVehicule(request);
     }
 
+    @PostMapping("/mise-a-jour/lot")
+    @PreAuthorize("hasAnyRole('API_Admin','API_Passerelle')")
+    public ResponseEntity<List<VehiculeUpdateResultResponse>> miseAJourLot(@RequestBody List<VehiculeUpdateRequest> requests) {
+        if (requests.size() > tailleLotMax) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(vehiculeService.updateVehicules(requests));
+    }
+
+    @PostMapping(value = "/mise-a-jour/trames", consumes = MediaType.TEXT_PLAIN_VALUE)
+    @PreAuthorize("hasAnyRole('API_Admin','API_Passerelle')")
+    public ResponseEntity<List<VehiculeUpdateResultResponse>> miseAJourTrames(HttpServletRequest request) throws IOException {
+        // Lecture bornée du corps brut : au-delà, le lot est refusé comme pour /mise-a-jour/lot
+        int octetsMax = tailleLotMax * OCTETS_MAX_PAR_TRAME;
+        byte[] corps = request.getInputStream().readNBytes(octetsMax + 1);
+        if (corps.length > octetsMax) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        List<VehiculeUpdateRequest> trames = trameParser.parser(corps, corps.length);
+        if (trames.size() > tailleLotMax) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return ResponseEntity.ok(vehiculeService.updateVehicules(trames));
+    }
+
+    @GetMapping("/telemetrie/statistiques")
+    @PreAuthorize("hasRole('API_Admin')")
+    public Map<String, Long> statistiquesTelemetrie() {
+        return vehiculeService.statistiquesTelemetrie();
+    }
+
     @PostMapping("/register")
     @PreAuthorize("hasRole('API_Admin')")
     public UUID creerVehicule(@Valid @RequestBody VehiculeCreateRequest request) {
@@ -57,8 +116,14 @@ public class VehiculeController {
 
     @GetMapping("/snapshots")
     @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation','API_Terrain')")
-    public List<VehiculeSnapshotResponse> snapshots() {
-        return vehiculeService.snapshots();
+    public ResponseEntity<List<VehiculeSnapshotResponse>> snapshots(WebRequest request) {
+        // Version et contenu lus dans la même vue de la flotte
+        FlotteEtatStore.Flotte flotte = vehiculeService.flotte();
+        String etag = versions.etag(VersionsCollections.VEHICULES, flotte.version());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(flotte.vehicules());
     }
 
     @GetMapping("/cle-ident")
@@ -73,6 +138,16 @@ public class VehiculeController {
         return vehiculeService.getEquipements(idVehicule);
     }
 
+    @GetMapping("/{id}/historique")
+    @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
+    public List<PositionHistoriqueResponse> historique(@PathVariable("id") UUID idVehicule,
+                                                       @RequestParam(value = "debut", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime debut,
+                                                       @RequestParam(value = "fin", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime fin) {
+        Instant finTrace = fin != null ? fin.toInstant() : Instant.now();
+        Instant debutTrace = debut != null ? debut.toInstant() : finTrace.minus(Duration.ofHours(1));
+        return vehiculeService.getHistorique(idVehicule, debutTrace, finTrace);
+    }
+
     @GetMapping("/{id}/caserne")
     @PreAuthorize("hasAnyRole('API_Admin','API_Operateur','API_Simulation')")
     public Map<String, Object> caserne(@PathVariable("id") UUID idVehicule) {
@@ -0,0 +1,8 @@
+package fr.cpe.sdmis.dto;
+
+import java.util.UUID;
+
+public record InterventionCleResponse(
+        UUID idEvenement,
+        UUID idVehicule
+) { }
@@ -0,0 +1,9 @@
+package fr.cpe.sdmis.dto;
+
+import java.util.List;
+
+public record PageResponse<T>(
+        List<T> elements,
+        String suivant
+) {
+}
@@ -0,0 +1,9 @@
+package fr.cpe.sdmis.dto;
+
+import java.time.Instant;
+
+public record PositionHistoriqueResponse(
+        Instant horodatage,
+        double latitude,
+        double longitude
+) { }
@@ -0,0 +1,15 @@
+package fr.cpe.sdmis.dto;
+
+import java.util.UUID;
+
+public record SseAbonneResponse(
+        UUID id,
+        String classe,
+        boolean cible,
+        boolean delta,
+        int enAttente,
+        long octetsEnvoyes,
+        long inactiviteMs,
+        long blocageMs
+) {
+}
@@ -0,0 +1,8 @@
+package fr.cpe.sdmis.dto;
+
+public record SseViewportRequest(
+        double latMin,
+        double lonMin,
+        double latMax,
+        double lonMax
+) { }
@@ -0,0 +1,15 @@
+package fr.cpe.sdmis.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record SyncResponse(
+        long version,
+        boolean complet,
+        List<VehiculeSnapshotResponse> vehicules,
+        List<EvenementSnapshotResponse> evenements,
+        List<InterventionSnapshotResponse> interventions,
+        List<UUID> vehiculesSupprimes,
+        List<UUID> evenementsSupprimes,
+        List<InterventionCleResponse> interventionsSupprimees
+) { }
@@ -0,0 +1,15 @@
+package fr.cpe.sdmis.dto;
+
+public record VehiculeUpdateResultResponse(
+        int index,
+        String plaqueImmat,
+        String statut,
+        String message
+) {
+    public static final String APPLIQUE = "APPLIQUE";
+    public static final String INVALIDE = "INVALIDE";
+    public static final String VEHICULE_INCONNU = "VEHICULE_INCONNU";
+    public static final String OBSOLETE = "OBSOLETE";
+    public static final String DOUBLON = "DOUBLON";
+    public static final String INCHANGE = "INCHANGE";
+}
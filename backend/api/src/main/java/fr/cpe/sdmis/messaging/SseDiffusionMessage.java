@@ -0,0 +1,28 @@
+package fr.cpe.sdmis.messaging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lot de publications SSE échangé entre instances de l'API via l'exchange fanout de diffusion.
+ */
+public class SseDiffusionMessage {
+    private String noeud;
+    private List<SsePublicationMessage> publications = new ArrayList<>();
+
+    public String getNoeud() {
+        return noeud;
+    }
+
+    public void setNoeud(String noeud) {
+        this.noeud = noeud;
+    }
+
+    public List<SsePublicationMessage> getPublications() {
+        return publications;
+    }
+
+    public void setPublications(List<SsePublicationMessage> publications) {
+        this.publications = publications;
+    }
+}
@@ -0,0 +1,45 @@
+package fr.cpe.sdmis.messaging;
+
+import java.util.UUID;
+
+/**
+ * Publication SSE d'une instance : identifiant unique (déduplication), nom d'évènement et contenu JSON.
+ */
+public class SsePublicationMessage {
+    private UUID id;
+    private String nom;
+    private Object payload;
+
+    public SsePublicationMessage() {
+    }
+
+    public SsePublicationMessage(UUID id, String nom, Object payload) {
+        this.id = id;
+        this.nom = nom;
+        this.payload = payload;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public void setNom(String nom) {
+        this.nom = nom;
+    }
+
+    public Object getPayload() {
+        return payload;
+    }
+
+    public void setPayload(Object payload) {
+        this.payload = payload;
+    }
+}
@@ -12,13 +12,15 @@ import java.util.UUID;
 public class CaserneRepository {
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ReferenceCache references;
 
-    public CaserneRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    public CaserneRepository(NamedParameterJdbcTemplate jdbcTemplate, ReferenceCache references) {
         this.jdbcTemplate = jdbcTemplate;
+        this.references = references;
     }
 
     public List<Map<String, Object>> findAll() {
-        return jdbcTemplate.queryForList("SELECT * FROM caserne", Map.of());
+        return references.lignes(ReferenceCache.Table.CASERNE);
     }
 
     public Optional<Map<String, Object>> findByVehiculeId(UUID vehiculeId) {
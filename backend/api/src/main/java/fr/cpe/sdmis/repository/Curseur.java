@@ -0,0 +1,112 @@
+package fr.cpe.sdmis.repository;
+
+import fr.cpe.sdmis.dto.PageResponse;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Curseur de pagination par clé (keyset) : les valeurs de tri de la dernière ligne servie, encodées en base64
+ * opaque pour le client. La page suivante reprend strictement après ces valeurs, sans OFFSET.
+ */
+final class Curseur {
+    private static final String SEPARATEUR = "|";
+    private static final String NUL = "~";
+
+    private final Object[] valeurs;
+
+    private Curseur(Object[] valeurs) {
+        this.valeurs = valeurs;
+    }
+
+    static String encoder(Object... valeurs) {
+        StringBuilder texte = new StringBuilder();
+        for (int i = 0; i < valeurs.length; i++) {
+            if (i > 0) {
+                texte.append(SEPARATEUR);
+            }
+            texte.append(valeurs[i] == null ? NUL : valeurs[i].toString());
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texte.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Décode un curseur dont les valeurs ont les types donnés ({@link Instant} ou {@link UUID}).
+     */
+    static Curseur decoder(String curseur, Class<?>... types) {
+        try {
+            String texte = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+            String[] parties = texte.split("\\" + SEPARATEUR, -1);
+            if (parties.length != types.length) {
+                throw new IllegalArgumentException("Curseur de pagination invalide : " + curseur);
+            }
+            Object[] valeurs = new Object[types.length];
+            for (int i = 0; i < types.length; i++) {
+                valeurs[i] = NUL.equals(parties[i]) ? null : lire(parties[i], types[i]);
+            }
+            return new Curseur(valeurs);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide : " + curseur);
+        }
+    }
+
+    /**
+     * Valeur de rang {@code i}, pour les dépôts en mémoire qui comparent sans SQL.
+     */
+    Object valeur(int i) {
+        return valeurs[i];
+    }
+
+    /**
+     * Prédicat « strictement après le curseur » pour un tri {@code DESC NULLS LAST} sur les colonnes données,
+     * dans le même ordre que les valeurs du curseur. Les paramètres sont ajoutés à {@code params}.
+     */
+    String apres(MapSqlParameterSource params, String... colonnes) {
+        List<String> alternatives = new ArrayList<>();
+        List<String> egalites = new ArrayList<>();
+        for (int i = 0; i < colonnes.length; i++) {
+            String parametre = "curseur" + i;
+            Object valeur = valeurs[i] instanceof Instant instant ? Timestamp.from(instant) : valeurs[i];
+            if (valeur != null) {
+                params.addValue(parametre, valeur);
+                List<String> termes = new ArrayList<>(egalites);
+                termes.add("(" + colonnes[i] + " < :" + parametre + " OR " + colonnes[i] + " IS NULL)");
+                alternatives.add("(" + String.join(" AND ", termes) + ")");
+                egalites.add(colonnes[i] + " = :" + parametre);
+            } else {
+                // Rien ne suit NULL sur cette colonne (NULLS LAST) : seules les colonnes suivantes départagent
+                egalites.add(colonnes[i] + " IS NULL");
+            }
+        }
+        return alternatives.isEmpty() ? "FALSE" : "(" + String.join(" OR ", alternatives) + ")";
+    }
+
+    /**
+     * Page à partir de {@code limite + 1} lignes lues : la ligne en trop signale seulement qu'une suite existe.
+     */
+    static <T> PageResponse<T> page(List<T> lignes, int limite, Function<T, String> curseur) {
+        if (lignes.size() <= limite) {
+            return new PageResponse<>(lignes, null);
+        }
+        List<T> elements = List.copyOf(lignes.subList(0, limite));
+        return new PageResponse<>(elements, curseur.apply(elements.get(limite - 1)));
+    }
+
+    private static Object lire(String valeur, Class<?> type) {
+        if (type == Instant.class) {
+            return Instant.parse(valeur);
+        }
+        if (type == UUID.class) {
+            return UUID.fromString(valeur);
+        }
+        throw new IllegalStateException("Type de curseur non géré : " + type.getSimpleName());
+    }
+}
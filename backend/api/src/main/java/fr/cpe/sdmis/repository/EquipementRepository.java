@@ -1,6 +1,5 @@
 package fr.cpe.sdmis.repository;
 
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,13 +8,13 @@ import java.util.Map;
 @Repository
 public class EquipementRepository {
 
-    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ReferenceCache references;
 
-    public EquipementRepository(NamedParameterJdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public EquipementRepository(ReferenceCache references) {
+        this.references = references;
     }
 
     public List<Map<String, Object>> findAll() {
-        return jdbcTemplate.queryForList("SELECT * FROM equipement", Map.of());
+        return references.lignes(ReferenceCache.Table.EQUIPEMENT);
     }
 }
@@ -2,16 +2,22 @@ package fr.cpe.sdmis.repository;
 
 import fr.cpe.sdmis.domain.model.Evenement;
 import fr.cpe.sdmis.dto.EvenementSnapshotResponse;
+import fr.cpe.sdmis.dto.PageResponse;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Repository
 public class EvenementRepository implements IEvenementRepository {
@@ -31,10 +37,24 @@ public class EvenementRepository implements IEvenementRepository {
             JOIN severite s ON s.id_severite = e.id_severite
             """;
 
+    private static final String EVENEMENT_QUERY = """
+            SELECT e.id_evenement, e.description, e.latitude, e.longitude,
+                   e.id_type_evenement, e.id_statut, e.id_severite,
+                   te.nom AS nom_type_evenement,
+                   se.nom_statut,
+                   sv.nom_severite, sv.valeur_échelle AS valeur_echelle, sv.nb_vehicules_necessaire
+            FROM evenement e
+            JOIN type_evenement te ON te.id_type_evenement = e.id_type_evenement
+            JOIN statut_evenement se ON se.id_statut = e.id_statut
+            JOIN severite sv ON sv.id_severite = e.id_severite
+            """;
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Pagination pagination;
 
-    public EvenementRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    public EvenementRepository(NamedParameterJdbcTemplate jdbcTemplate, Pagination pagination) {
         this.jdbcTemplate = jdbcTemplate;
+        this.pagination = pagination;
     }
 
     @Override
@@ -91,21 +111,25 @@ public class EvenementRepository implements IEvenementRepository {
 
     @Override
     public List<Evenement> findAll() {
-        return jdbcTemplate.query(
-                """
-                SELECT e.id_evenement, e.description, e.latitude, e.longitude,
-                       e.id_type_evenement, e.id_statut, e.id_severite,
-                       te.nom AS nom_type_evenement,
-                       se.nom_statut,
-                       sv.nom_severite, sv.valeur_échelle AS valeur_echelle, sv.nb_vehicules_necessaire
-                FROM evenement e
-                JOIN type_evenement te ON te.id_type_evenement = e.id_type_evenement
-                JOIN statut_evenement se ON se.id_statut = e.id_statut
-                JOIN severite sv ON sv.id_severite = e.id_severite
-                ORDER BY e.id_evenement DESC
-                """,
-                new EvenementRowMapper()
-        );
+        return jdbcTemplate.query(EVENEMENT_QUERY + "ORDER BY e.id_evenement DESC", new EvenementRowMapper());
+    }
+
+    @Override
+    public PageResponse<Evenement> findPage(String apres, int limite) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limite", limite + 1);
+        String where = apres == null ? ""
+                : "WHERE " + Curseur.decoder(apres, UUID.class).apres(params, "e.id_evenement") + "\n";
+        List<Evenement> lignes = jdbcTemplate.query(EVENEMENT_QUERY + where + "ORDER BY e.id_evenement DESC\nLIMIT :limite",
+                params, new EvenementRowMapper());
+        return Curseur.page(lignes, limite, e -> Curseur.encoder(e.id()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void parcourir(Consumer<Evenement> consommateur) {
+        EvenementRowMapper mapper = new EvenementRowMapper();
+        pagination.flux().query(EVENEMENT_QUERY + "ORDER BY e.id_evenement DESC", new MapSqlParameterSource(),
+                (RowCallbackHandler) rs -> consommateur.accept(mapper.mapRow(rs, rs.getRow())));
     }
 
     private static class EvenementRowMapper implements RowMapper<Evenement> {
@@ -151,6 +175,18 @@ public class EvenementRepository implements IEvenementRepository {
         return res.stream().findFirst();
     }
 
+    @Override
+    public List<EvenementSnapshotResponse> findSnapshotsByIds(Collection<UUID> idsEvenements) {
+        if (idsEvenements.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                SNAPSHOT_QUERY + " WHERE e.id_evenement = ANY(:ids)",
+                new MapSqlParameterSource("ids", new SqlArrayValue("uuid", idsEvenements.toArray())),
+                this::mapSnapshot
+        );
+    }
+
     @Override
     public void update(UUID idEvenement, String description, double latitude, double longitude, UUID idTypeEvenement, UUID idSeverite) {
         jdbcTemplate.update("""
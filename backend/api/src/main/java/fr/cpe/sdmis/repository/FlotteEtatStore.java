@@ -0,0 +1,221 @@
+package fr.cpe.sdmis.repository;
+
+import fr.cpe.sdmis.dto.EquipementContenanceResponse;
+import fr.cpe.sdmis.dto.VehiculeSnapshotResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Etat de la flotte en mémoire : vue immuable et versionnée des snapshots véhicules, chargée une fois depuis
+ * la base puis tenue à jour par les chemins d'écriture (positions, changements de statut, création).
+ * Les lectures ne prennent aucun verrou ; chaque écriture publie une nouvelle vue (copie sur écriture).
+ */
+@Repository
+public class FlotteEtatStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlotteEtatStore.class);
+    private static final int ESSAIS_CHARGEMENT = 5;
+
+    private final VehiculeRepository vehiculeRepository;
+    private final AtomicReference<Flotte> courante = new AtomicReference<>(new Flotte(0L, null, List.of()));
+    private final AtomicReference<Map<UUID, VehiculeSnapshotResponse>> positionsConnues = new AtomicReference<>();
+
+    public FlotteEtatStore(VehiculeRepository vehiculeRepository) {
+        this.vehiculeRepository = vehiculeRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prechauffer() {
+        try {
+            flotte();
+        } catch (DataAccessException e) {
+            LOGGER.warn("Chargement de l'état de la flotte impossible, chargement au premier accès : {}", e.getMessage());
+        }
+    }
+
+    public Flotte flotte() {
+        Flotte flotte = courante.get();
+        return flotte.chargee() ? flotte : charger();
+    }
+
+    public List<VehiculeSnapshotResponse> vehicules() {
+        return flotte().vehicules();
+    }
+
+    public Optional<VehiculeSnapshotResponse> vehicule(UUID idVehicule) {
+        return Optional.ofNullable(flotte().parId().get(idVehicule));
+    }
+
+    public List<VehiculeSnapshotResponse> vehicules(Collection<UUID> idsVehicules) {
+        Map<UUID, VehiculeSnapshotResponse> parId = flotte().parId();
+        List<VehiculeSnapshotResponse> vehicules = new ArrayList<>(idsVehicules.size());
+        for (UUID id : idsVehicules) {
+            VehiculeSnapshotResponse vehicule = parId.get(id);
+            if (vehicule != null) {
+                vehicules.add(vehicule);
+            }
+        }
+        return vehicules;
+    }
+
+    /**
+     * Applique une mise à jour par véhicule (l'opérateur reçoit l'état courant, null si inconnu, et retourne
+     * le nouvel état ou null pour ne rien changer) et publie une seule nouvelle version.
+     * Les opérateurs doivent être sans effet de bord : ils peuvent être rejoués en cas d'écriture concurrente.
+     * Retourne les snapshots modifiés.
+     */
+    public List<VehiculeSnapshotResponse> modifier(Map<UUID, UnaryOperator<VehiculeSnapshotResponse>> majs) {
+        if (majs.isEmpty()) {
+            return List.of();
+        }
+        for (;;) {
+            // Vue invalidée entre la lecture et la publication : on recharge et on rejoue les opérateurs dessus
+            Flotte vue = flotte();
+            List<VehiculeSnapshotResponse> modifies = new ArrayList<>(majs.size());
+            Map<UUID, VehiculeSnapshotResponse> parId = null;
+            for (Map.Entry<UUID, UnaryOperator<VehiculeSnapshotResponse>> maj : majs.entrySet()) {
+                VehiculeSnapshotResponse nouveau = maj.getValue().apply(vue.parId().get(maj.getKey()));
+                if (nouveau == null) {
+                    continue;
+                }
+                if (parId == null) {
+                    parId = new LinkedHashMap<>(vue.parId());
+                }
+                parId.put(maj.getKey(), nouveau);
+                modifies.add(nouveau);
+            }
+            if (parId == null || courante.compareAndSet(vue, Flotte.de(vue.version() + 1, parId))) {
+                return List.copyOf(modifies);
+            }
+        }
+    }
+
+    public Optional<VehiculeSnapshotResponse> majStatut(UUID idVehicule, String statut) {
+        return modifier(Map.of(idVehicule, vehicule -> vehicule == null || statut.equals(vehicule.statut()) ? null
+                : new VehiculeSnapshotResponse(vehicule.id(), vehicule.plaqueImmat(), vehicule.latitude(), vehicule.longitude(),
+                        vehicule.dernierePositionConnue(), statut, vehicule.caserne(), vehicule.equipements())))
+                .stream().findFirst();
+    }
+
+    /**
+     * Relit un véhicule en base (création, écriture hors des chemins connus) et l'installe dans la vue.
+     */
+    public Optional<VehiculeSnapshotResponse> rafraichir(UUID idVehicule) {
+        Optional<VehiculeSnapshotResponse> lu = vehiculeRepository.findSnapshotById(idVehicule);
+        lu.ifPresent(vehicule -> modifier(Map.of(idVehicule, ancien -> vehicule)));
+        return lu;
+    }
+
+    /**
+     * Relit plusieurs véhicules en une requête et publie une seule nouvelle version.
+     */
+    public List<VehiculeSnapshotResponse> rafraichir(Collection<UUID> idsVehicules) {
+        Map<UUID, UnaryOperator<VehiculeSnapshotResponse>> majs = new LinkedHashMap<>();
+        for (VehiculeSnapshotResponse vehicule : vehiculeRepository.findSnapshotsByIds(idsVehicules)) {
+            majs.put(vehicule.id(), ancien -> vehicule);
+        }
+        return modifier(majs);
+    }
+
+    public void invalider() {
+        Flotte avant = courante.getAndUpdate(flotte -> new Flotte(flotte.version() + 1, null, List.of()));
+        if (avant.chargee()) {
+            // La base est en retard sur la mémoire (écriture différée, battements jamais écrits) : le rechargement
+            // repartira des dernières positions connues
+            positionsConnues.set(avant.parId());
+        }
+    }
+
+    @EventListener
+    public void surInvalidation(Invalidation invalidation) {
+        switch (invalidation.entite()) {
+            case VEHICULE -> {
+                if (invalidation.complete()) {
+                    invalider();
+                } else {
+                    rafraichir(invalidation.ids());
+                }
+            }
+            // Statuts et casernes sont dénormalisés dans les snapshots
+            case REFERENCE -> invalider();
+            default -> {
+            }
+        }
+    }
+
+    private synchronized Flotte charger() {
+        for (int essai = 1; ; essai++) {
+            Flotte vue = courante.get();
+            if (vue.chargee()) {
+                return vue;
+            }
+            Map<UUID, VehiculeSnapshotResponse> connues = positionsConnues.get();
+            Map<UUID, VehiculeSnapshotResponse> parId = new LinkedHashMap<>();
+            for (VehiculeSnapshotResponse vehicule : vehiculeRepository.findSnapshots()) {
+                parId.put(vehicule.id(), connues != null ? superposer(vehicule, connues.get(vehicule.id())) : vehicule);
+            }
+            Flotte chargee = Flotte.de(vue.version() + 1, parId);
+            // Une écriture pendant la lecture rend le chargement potentiellement périmé : on relit
+            if (courante.compareAndSet(vue, chargee)) {
+                positionsConnues.compareAndSet(connues, null);
+                LOGGER.info("Etat de la flotte chargé ({} véhicules, version {})", parId.size(), chargee.version());
+                return chargee;
+            }
+            if (essai >= ESSAIS_CHARGEMENT) {
+                LOGGER.warn("Etat de la flotte chargé malgré des écritures concurrentes ({} essais)", essai);
+                Flotte forcee = Flotte.de(courante.get().version() + 1, parId);
+                courante.set(forcee);
+                positionsConnues.compareAndSet(connues, null);
+                return forcee;
+            }
+        }
+    }
+
+    /**
+     * Garde la position, l'horodatage et les contenances de la mémoire quand ils sont plus récents que la base ;
+     * statut, caserne et liste des équipements viennent de la base.
+     */
+    private static VehiculeSnapshotResponse superposer(VehiculeSnapshotResponse base, VehiculeSnapshotResponse memoire) {
+        if (memoire == null || memoire.dernierePositionConnue() == null || (base.dernierePositionConnue() != null
+                && !memoire.dernierePositionConnue().isAfter(base.dernierePositionConnue()))) {
+            return base;
+        }
+        Map<String, Integer> contenances = new HashMap<>();
+        for (EquipementContenanceResponse equipement : memoire.equipements()) {
+            contenances.put(equipement.nomEquipement(), equipement.contenanceCourante());
+        }
+        List<EquipementContenanceResponse> equipements = new ArrayList<>(base.equipements().size());
+        for (EquipementContenanceResponse equipement : base.equipements()) {
+            equipements.add(contenances.containsKey(equipement.nomEquipement())
+                    ? new EquipementContenanceResponse(equipement.nomEquipement(), contenances.get(equipement.nomEquipement()))
+                    : equipement);
+        }
+        return new VehiculeSnapshotResponse(base.id(), base.plaqueImmat(), memoire.latitude(), memoire.longitude(),
+                memoire.dernierePositionConnue(), base.statut(), base.caserne(), equipements);
+    }
+
+    public record Flotte(long version, Map<UUID, VehiculeSnapshotResponse> parId, List<VehiculeSnapshotResponse> vehicules) {
+        private static Flotte de(long version, Map<UUID, VehiculeSnapshotResponse> parId) {
+            return new Flotte(version, Collections.unmodifiableMap(parId), List.copyOf(parId.values()));
+        }
+
+        public boolean chargee() {
+            return parId != null;
+        }
+    }
+}
@@ -2,10 +2,13 @@ package fr.cpe.sdmis.repository;
 
 import fr.cpe.sdmis.domain.model.Evenement;
 import fr.cpe.sdmis.dto.EvenementSnapshotResponse;
+import fr.cpe.sdmis.dto.PageResponse;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface IEvenementRepository {
     Evenement save(Evenement evenement);
@@ -14,9 +17,21 @@ public interface IEvenementRepository {
 
     List<Evenement> findAll();
 
+    /**
+     * Page d'évènements (ordre décroissant d'identifiant) strictement après le curseur {@code apres} (null : début).
+     */
+    PageResponse<Evenement> findPage(String apres, int limite);
+
+    /**
+     * Parcourt tous les évènements dans le même ordre sans les charger en mémoire d'un bloc.
+     */
+    void parcourir(Consumer<Evenement> consommateur);
+
     List<EvenementSnapshotResponse> findSnapshots();
 
     Optional<EvenementSnapshotResponse> findSnapshotById(UUID idEvenement);
 
+    List<EvenementSnapshotResponse> findSnapshotsByIds(Collection<UUID> idsEvenements);
+
     void update(UUID idEvenement, String description, double latitude, double longitude, UUID idTypeEvenement, UUID idSeverite);
 }
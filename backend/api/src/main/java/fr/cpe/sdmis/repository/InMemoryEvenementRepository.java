@@ -2,15 +2,21 @@ package fr.cpe.sdmis.repository;
 
 import fr.cpe.sdmis.domain.model.Evenement;
 import fr.cpe.sdmis.dto.EvenementSnapshotResponse;
+import fr.cpe.sdmis.dto.PageResponse;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 @Profile("inmemory")
@@ -48,6 +54,22 @@ public class InMemoryEvenementRepository implements IEvenementRepository {
         return new ArrayList<>(store.values());
     }
 
+    @Override
+    public PageResponse<Evenement> findPage(String apres, int limite) {
+        // Même curseur opaque que le dépôt JDBC, décodé et validé de la même façon
+        String dernier = apres == null ? null : Curseur.decoder(apres, UUID.class).valeur(0).toString();
+        List<Evenement> lignes = triees()
+                .filter(evenement -> dernier == null || evenement.id().toString().compareTo(dernier) < 0)
+                .limit(limite + 1L)
+                .toList();
+        return Curseur.page(lignes, limite, evenement -> Curseur.encoder(evenement.id()));
+    }
+
+    @Override
+    public void parcourir(Consumer<Evenement> consommateur) {
+        triees().forEach(consommateur);
+    }
+
     @Override
     public List<EvenementSnapshotResponse> findSnapshots() {
         return store.values().stream()
@@ -60,6 +82,15 @@ public class InMemoryEvenementRepository implements IEvenementRepository {
         return Optional.ofNullable(store.get(idEvenement)).map(this::toSnapshot);
     }
 
+    @Override
+    public List<EvenementSnapshotResponse> findSnapshotsByIds(Collection<UUID> idsEvenements) {
+        return idsEvenements.stream()
+                .map(store::get)
+                .filter(Objects::nonNull)
+                .map(this::toSnapshot)
+                .toList();
+    }
+
     @Override
     public void update(UUID idEvenement, String description, double latitude, double longitude, UUID idTypeEvenement, UUID idSeverite) {
         Evenement existing = store.get(idEvenement);
@@ -82,6 +113,11 @@ public class InMemoryEvenementRepository implements IEvenementRepository {
         ));
     }
 
+    private Stream<Evenement> triees() {
+        return store.values().stream()
+                .sorted(Comparator.comparing((Evenement evenement) -> evenement.id().toString()).reversed());
+    }
+
     private EvenementSnapshotResponse toSnapshot(Evenement evenement) {
         return new EvenementSnapshotResponse(
                 evenement.id(),
@@ -1,24 +1,30 @@
 package fr.cpe.sdmis.repository;
 
+import fr.cpe.sdmis.dto.InterventionCleResponse;
 import fr.cpe.sdmis.dto.InterventionResponse;
 import fr.cpe.sdmis.dto.InterventionSnapshotResponse;
+import fr.cpe.sdmis.dto.PageResponse;
 import fr.cpe.sdmis.messaging.InterventionMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository
 public class InterventionRepository {
@@ -30,6 +36,20 @@ public class InterventionRepository {
     private static final String STATUT_VEHICULE_EN_ROUTE = "En route";
     private static final String STATUT_INTERVENTION_TERMINEE = "Terminée";
     private static final String STATUT_VEHICULE_DISPONIBLE = "Disponible";
+    private static final String INTERVENTION_QUERY = """
+            SELECT i.id_evenement,
+                   i.id_vehicule,
+                   i.id_statut_intervention,
+                   si.nom AS nom_statut_intervention,
+                   i.date_debut,
+                   i.date_fin
+            FROM intervention i
+            JOIN statut_intervention si ON si.id_statut_intervention = i.id_statut_intervention
+            """;
+    // Tris stables (départage par clé primaire) : condition de la pagination par curseur
+    private static final String ORDRE_INTERVENTIONS = "i.date_debut DESC NULLS LAST, i.id_evenement DESC, i.id_vehicule DESC";
+    private static final String ORDRE_TERMINEES =
+            "i.date_fin DESC NULLS LAST, i.date_debut DESC NULLS LAST, i.id_evenement DESC, i.id_vehicule DESC";
     private static final String SNAPSHOT_QUERY = """
             SELECT i.id_evenement,
                    i.date_debut as date_debut_intervention,
@@ -43,9 +63,18 @@ public class InterventionRepository {
             """;
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final FlotteEtatStore flotte;
+    private final VersionsCollections versions;
+    private final Pagination pagination;
+    private final ReferenceCache references;
 
-    public InterventionRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    public InterventionRepository(NamedParameterJdbcTemplate jdbcTemplate, FlotteEtatStore flotte,
+                                  VersionsCollections versions, Pagination pagination, ReferenceCache references) {
         this.jdbcTemplate = jdbcTemplate;
+        this.flotte = flotte;
+        this.versions = versions;
+        this.pagination = pagination;
+        this.references = references;
     }
 
     public void saveFromMessage(InterventionMessage message) {
@@ -68,6 +97,7 @@ public class InterventionRepository {
                     .addValue("id_evenement", message.getIdEvenement())
                     .addValue("id_vehicule", message.getVehiculeId()));
             if (updated > 0) {
+                versions.incrementer(VersionsCollections.INTERVENTIONS);
                 LOGGER.info("Intervention existante mise en 'En attente' pour évènement {} avec véhicule {}", message.getIdEvenement(), message.getVehiculeId());
                 updateVehiculeStatutProposition(message.getVehiculeId());
                 return;
@@ -79,6 +109,7 @@ public class InterventionRepository {
                     ON CONFLICT DO NOTHING
                     """, params);
             if (rows > 0) {
+                versions.incrementer(VersionsCollections.INTERVENTIONS);
                 LOGGER.info("Intervention insérée pour évènement {} avec véhicule {}", message.getIdEvenement(), message.getVehiculeId());
                 updateVehiculeStatutProposition(message.getVehiculeId());
             } else {
@@ -91,54 +122,75 @@ public class InterventionRepository {
     }
 
     public List<InterventionResponse> findAll() {
-        return jdbcTemplate.query("""
-                SELECT i.id_evenement,
-                       i.id_vehicule,
-                       i.id_statut_intervention,
-                       si.nom AS nom_statut_intervention,
-                       i.date_debut,
-                       i.date_fin
-                FROM intervention i
-                JOIN statut_intervention si ON si.id_statut_intervention = i.id_statut_intervention
-                ORDER BY i.date_debut DESC NULLS LAST
-                """, new InterventionRowMapper());
+        return jdbcTemplate.query(INTERVENTION_QUERY + "ORDER BY " + ORDRE_INTERVENTIONS, new InterventionRowMapper());
+    }
+
+    public PageResponse<InterventionResponse> findPage(String apres, int limite) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limite", limite + 1);
+        String where = apres == null ? "" : "WHERE " + Curseur.decoder(apres, Instant.class, UUID.class, UUID.class)
+                .apres(params, "i.date_debut", "i.id_evenement", "i.id_vehicule") + "\n";
+        List<InterventionResponse> lignes = jdbcTemplate.query(INTERVENTION_QUERY + where
+                + "ORDER BY " + ORDRE_INTERVENTIONS + "\nLIMIT :limite", params, new InterventionRowMapper());
+        return Curseur.page(lignes, limite, i -> Curseur.encoder(i.dateDebut(), i.idEvenement(), i.idVehicule()));
+    }
+
+    /**
+     * Parcourt tout l'historique en flux (curseur serveur, lot par lot) : la transaction garde l'autocommit
+     * désactivé, condition pour que le driver respecte la taille de lot.
+     */
+    @Transactional(readOnly = true)
+    public void parcourir(Consumer<InterventionResponse> consommateur) {
+        InterventionRowMapper mapper = new InterventionRowMapper();
+        pagination.flux().query(INTERVENTION_QUERY + "ORDER BY " + ORDRE_INTERVENTIONS, new MapSqlParameterSource(),
+                (RowCallbackHandler) rs -> consommateur.accept(mapper.mapRow(rs, rs.getRow())));
     }
 
     public List<InterventionResponse> findTerminees() {
-        return jdbcTemplate.query("""
-                SELECT i.id_evenement,
-                       i.id_vehicule,
-                       i.id_statut_intervention,
-                       si.nom AS nom_statut_intervention,
-                       i.date_debut,
-                       i.date_fin
-                FROM intervention i
-                JOIN statut_intervention si ON si.id_statut_intervention = i.id_statut_intervention
-                WHERE lower(si.nom) = lower(:statut)
-                ORDER BY i.date_fin DESC NULLS LAST, i.date_debut DESC NULLS LAST
-                """, new MapSqlParameterSource("statut", STATUT_INTERVENTION_TERMINEE), new InterventionRowMapper());
+        return jdbcTemplate.query(INTERVENTION_QUERY + "WHERE i.id_statut_intervention = :statut\nORDER BY " + ORDRE_TERMINEES,
+                new MapSqlParameterSource("statut", resolveStatutInterventionByNom(STATUT_INTERVENTION_TERMINEE)), new InterventionRowMapper());
+    }
+
+    public PageResponse<InterventionResponse> findTermineesPage(String apres, int limite) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("statut", resolveStatutInterventionByNom(STATUT_INTERVENTION_TERMINEE))
+                .addValue("limite", limite + 1);
+        String where = "WHERE i.id_statut_intervention = :statut\n";
+        if (apres != null) {
+            where += "  AND " + Curseur.decoder(apres, Instant.class, Instant.class, UUID.class, UUID.class)
+                    .apres(params, "i.date_fin", "i.date_debut", "i.id_evenement", "i.id_vehicule") + "\n";
+        }
+        List<InterventionResponse> lignes = jdbcTemplate.query(INTERVENTION_QUERY + where
+                + "ORDER BY " + ORDRE_TERMINEES + "\nLIMIT :limite", params, new InterventionRowMapper());
+        return Curseur.page(lignes, limite,
+                i -> Curseur.encoder(i.dateFin(), i.dateDebut(), i.idEvenement(), i.idVehicule()));
+    }
+
+    @Transactional(readOnly = true)
+    public void parcourirTerminees(Consumer<InterventionResponse> consommateur) {
+        InterventionRowMapper mapper = new InterventionRowMapper();
+        pagination.flux().query(INTERVENTION_QUERY + "WHERE i.id_statut_intervention = :statut\nORDER BY " + ORDRE_TERMINEES,
+                new MapSqlParameterSource("statut", resolveStatutInterventionByNom(STATUT_INTERVENTION_TERMINEE)),
+                (RowCallbackHandler) rs -> consommateur.accept(mapper.mapRow(rs, rs.getRow())));
     }
 
     public List<UUID> findVehiculesByInterventionStatut(UUID idEvenement, String statutNom) {
         return jdbcTemplate.query("""
                 SELECT i.id_vehicule
                 FROM intervention i
-                JOIN statut_intervention si ON si.id_statut_intervention = i.id_statut_intervention
                 WHERE i.id_evenement = :event
-                  AND lower(si.nom) = lower(:statut)
+                  AND i.id_statut_intervention = :statut
                 """, new MapSqlParameterSource()
                 .addValue("event", idEvenement)
-                .addValue("statut", statutNom), (rs, rowNum) -> rs.getObject("id_vehicule", UUID.class));
+                .addValue("statut", resolveStatutInterventionByNom(statutNom)), (rs, rowNum) -> rs.getObject("id_vehicule", UUID.class));
     }
 
     public boolean vehiculeHasInterventionWithStatut(UUID vehiculeId, String statutNom) {
         Integer count = jdbcTemplate.queryForObject("""
                 SELECT COUNT(*) FROM intervention i
-                JOIN statut_intervention si ON si.id_statut_intervention = i.id_statut_intervention
-                WHERE i.id_vehicule = :vehicule AND lower(si.nom) = lower(:statut)
+                WHERE i.id_vehicule = :vehicule AND i.id_statut_intervention = :statut
                 """, new MapSqlParameterSource()
                 .addValue("vehicule", vehiculeId)
-                .addValue("statut", statutNom),
+                .addValue("statut", resolveStatutInterventionByNom(statutNom)),
                 Integer.class);
         return count != null && count > 0;
     }
@@ -158,15 +210,8 @@ public class InterventionRepository {
     }
 
     private UUID resolveStatutIntervention() {
-        try {
-            return jdbcTemplate.queryForObject("""
-                    SELECT id_statut_intervention
-                    FROM statut_intervention
-                    WHERE lower(nom) = lower(:nom)
-                    """, new MapSqlParameterSource("nom", STATUT_EN_ATTENTE), UUID.class);
-        } catch (EmptyResultDataAccessException e) {
-            throw new IllegalStateException("Statut d'intervention introuvable en base : " + STATUT_EN_ATTENTE);
-        }
+        return references.id(ReferenceCache.Table.STATUT_INTERVENTION, STATUT_EN_ATTENTE)
+                .orElseThrow(() -> new IllegalStateException("Statut d'intervention introuvable en base : " + STATUT_EN_ATTENTE));
     }
 
     private void updateVehiculeStatutProposition(UUID vehiculeId) {
@@ -174,23 +219,23 @@ public class InterventionRepository {
             return;
         }
         try {
-            UUID statutVehiculeId = jdbcTemplate.queryForObject("""
-                    SELECT id_statut
-                    FROM statut_vehicule
-                    WHERE lower(nom_statut) = lower(:nom)
-                    """, new MapSqlParameterSource("nom", STATUT_VEHICULE_PROPOSITION), UUID.class);
+            Optional<UUID> statut = references.id(ReferenceCache.Table.STATUT_VEHICULE, STATUT_VEHICULE_PROPOSITION);
+            if (statut.isEmpty()) {
+                LOGGER.error("Statut véhicule 'En proposition' introuvable, mise à jour ignorée");
+                return;
+            }
             int rows = jdbcTemplate.update("""
                     UPDATE vehicule
                     SET id_statut = :statut
                     WHERE id_vehicule = :vehicule
                     """, new MapSqlParameterSource()
-                    .addValue("statut", statutVehiculeId)
+                    .addValue("statut", statut.get())
                     .addValue("vehicule", vehiculeId));
             if (rows == 0) {
                 LOGGER.warn("Statut véhicule non mis à jour (id={})", vehiculeId);
+            } else {
+                flotte.majStatut(vehiculeId, STATUT_VEHICULE_PROPOSITION);
             }
-        } catch (EmptyResultDataAccessException e) {
-            LOGGER.error("Statut véhicule 'En proposition' introuvable, mise à jour ignorée");
         } catch (DataAccessException e) {
             LOGGER.error("Echec mise à jour statut 'En proposition' pour véhicule {} : {}", vehiculeId, e.getMessage());
         }
@@ -201,35 +246,29 @@ public class InterventionRepository {
             return;
         }
         try {
-            UUID statutVehiculeId = jdbcTemplate.queryForObject("""
-                    SELECT id_statut
-                    FROM statut_vehicule
-                    WHERE lower(nom_statut) = lower(:nom)
-                    """, new MapSqlParameterSource("nom", STATUT_VEHICULE_EN_ROUTE), UUID.class);
-            jdbcTemplate.update("""
+            Optional<UUID> statut = references.id(ReferenceCache.Table.STATUT_VEHICULE, STATUT_VEHICULE_EN_ROUTE);
+            if (statut.isEmpty()) {
+                LOGGER.error("Statut véhicule 'En route' introuvable, mise à jour ignorée");
+                return;
+            }
+            int rows = jdbcTemplate.update("""
                     UPDATE vehicule
                     SET id_statut = :statut
                     WHERE id_vehicule = :vehicule
                     """, new MapSqlParameterSource()
-                    .addValue("statut", statutVehiculeId)
+                    .addValue("statut", statut.get())
                     .addValue("vehicule", vehiculeId));
-        } catch (EmptyResultDataAccessException e) {
-            LOGGER.error("Statut véhicule 'En route' introuvable, mise à jour ignorée");
+            if (rows > 0) {
+                flotte.majStatut(vehiculeId, STATUT_VEHICULE_EN_ROUTE);
+            }
         } catch (DataAccessException e) {
             LOGGER.error("Echec mise à jour statut 'En route' pour véhicule {} : {}", vehiculeId, e.getMessage());
         }
     }
 
     public UUID resolveStatutInterventionByNom(String nom) {
-        try {
-            return jdbcTemplate.queryForObject("""
-                    SELECT id_statut_intervention
-                    FROM statut_intervention
-                    WHERE lower(nom) = lower(:nom)
-                    """, new MapSqlParameterSource("nom", nom), UUID.class);
-        } catch (EmptyResultDataAccessException e) {
-            throw new IllegalStateException("Statut d'intervention introuvable : " + nom);
-        }
+        return references.id(ReferenceCache.Table.STATUT_INTERVENTION, nom)
+                .orElseThrow(() -> new IllegalStateException("Statut d'intervention introuvable : " + nom));
     }
 
     public void updateInterventionStatutEnCours(UUID idEvenement, UUID idVehicule, UUID idStatut, Instant dateDebut) {
@@ -243,10 +282,11 @@ public class InterventionRepository {
                 .addValue("debut", Timestamp.from(dateDebut))
                 .addValue("event", idEvenement)
                 .addValue("vehicule", idVehicule));
+        versions.incrementer(VersionsCollections.INTERVENTIONS);
     }
 
     public int annulerInterventionsEnAttente(UUID idEvenement, UUID statutEnAttente, UUID statutAnnule) {
-        return jdbcTemplate.update("""
+        int annulees = jdbcTemplate.update("""
                 UPDATE intervention
                 SET id_statut_intervention = :statutAnnule
                 WHERE id_evenement = :event
@@ -255,6 +295,10 @@ public class InterventionRepository {
                 .addValue("event", idEvenement)
                 .addValue("statutAnnule", statutAnnule)
                 .addValue("statutAttente", statutEnAttente));
+        if (annulees > 0) {
+            versions.incrementer(VersionsCollections.INTERVENTIONS);
+        }
+        return annulees;
     }
 
     public void insertInterventionEnCours(UUID idEvenement, UUID idVehicule, Instant dateDebut, UUID statutEnCours) {
@@ -267,6 +311,7 @@ public class InterventionRepository {
                 .addValue("debut", Timestamp.from(dateDebut))
                 .addValue("vehicule", idVehicule)
                 .addValue("statut", statutEnCours));
+        versions.incrementer(VersionsCollections.INTERVENTIONS);
     }
 
     public List<InterventionSnapshotResponse> findSnapshots() {
@@ -292,6 +337,32 @@ public class InterventionRepository {
         return res.stream().findFirst();
     }
 
+    public List<InterventionSnapshotResponse> findSnapshotsByEvenementEtVehicules(UUID idEvenement, Collection<UUID> vehiculeIds) {
+        if (vehiculeIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                SNAPSHOT_QUERY + " WHERE i.id_evenement = :event AND i.id_vehicule = ANY(:vehicules)",
+                new MapSqlParameterSource()
+                        .addValue("event", idEvenement)
+                        .addValue("vehicules", new SqlArrayValue("uuid", vehiculeIds.toArray())),
+                this::mapSnapshot
+        );
+    }
+
+    public List<InterventionSnapshotResponse> findSnapshotsByCles(Collection<InterventionCleResponse> cles) {
+        if (cles.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                SNAPSHOT_QUERY + " WHERE (i.id_evenement, i.id_vehicule) IN (SELECT * FROM unnest(:evenements, :vehicules))",
+                new MapSqlParameterSource()
+                        .addValue("evenements", new SqlArrayValue("uuid", cles.stream().map(InterventionCleResponse::idEvenement).toArray()))
+                        .addValue("vehicules", new SqlArrayValue("uuid", cles.stream().map(InterventionCleResponse::idVehicule).toArray())),
+                this::mapSnapshot
+        );
+    }
+
     private InterventionSnapshotResponse mapSnapshot(ResultSet rs, int rowNum) throws SQLException {
         return new fr.cpe.sdmis.dto.InterventionSnapshotResponse(
                 rs.getObject("id_evenement", UUID.class),
@@ -315,6 +386,7 @@ public class InterventionRepository {
                 .addValue("fin", Timestamp.from(Instant.now()))
                 .addValue("event", idEvenement)
                 .addValue("vehicule", idVehicule));
+        versions.incrementer(VersionsCollections.INTERVENTIONS);
     }
 
     public void updateVehiculeStatutDisponible(UUID vehiculeId) {
@@ -322,20 +394,21 @@ public class InterventionRepository {
             return;
         }
         try {
-            UUID statutVehiculeId = jdbcTemplate.queryForObject("""
-                    SELECT id_statut
-                    FROM statut_vehicule
-                    WHERE lower(nom_statut) = lower(:nom)
-                    """, new MapSqlParameterSource("nom", STATUT_VEHICULE_DISPONIBLE), UUID.class);
-            jdbcTemplate.update("""
+            Optional<UUID> statut = references.id(ReferenceCache.Table.STATUT_VEHICULE, STATUT_VEHICULE_DISPONIBLE);
+            if (statut.isEmpty()) {
+                LOGGER.error("Statut véhicule 'Disponible' introuvable, mise à jour ignorée");
+                return;
+            }
+            int rows = jdbcTemplate.update("""
                     UPDATE vehicule
                     SET id_statut = :statut
                     WHERE id_vehicule = :vehicule
                     """, new MapSqlParameterSource()
-                    .addValue("statut", statutVehiculeId)
+                    .addValue("statut", statut.get())
                     .addValue("vehicule", vehiculeId));
-        } catch (EmptyResultDataAccessException e) {
-            LOGGER.error("Statut véhicule 'Disponible' introuvable, mise à jour ignorée");
+            if (rows > 0) {
+                flotte.majStatut(vehiculeId, STATUT_VEHICULE_DISPONIBLE);
+            }
         } catch (DataAccessException e) {
             LOGGER.error("Echec mise à jour statut 'Disponible' pour véhicule {} : {}", vehiculeId, e.getMessage());
         }
@@ -344,11 +417,10 @@ public class InterventionRepository {
     public boolean hasInterventionEnCours(UUID idEvenement) {
         Integer count = jdbcTemplate.queryForObject("""
                 SELECT COUNT(*) FROM intervention i
-                JOIN statut_intervention si ON si.id_statut_intervention = i.id_statut_intervention
-                WHERE i.id_evenement = :event AND lower(si.nom) = lower(:nom)
+                WHERE i.id_evenement = :event AND i.id_statut_intervention = :statut
                 """, new MapSqlParameterSource()
                 .addValue("event", idEvenement)
-                .addValue("nom", STATUT_INTERVENTION_EN_COURS),
+                .addValue("statut", resolveStatutInterventionByNom(STATUT_INTERVENTION_EN_COURS)),
                 Integer.class);
         return count != null && count > 0;
     }
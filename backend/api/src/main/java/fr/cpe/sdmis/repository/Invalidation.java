@@ -0,0 +1,18 @@
+package fr.cpe.sdmis.repository;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Evènement applicatif publié par {@link InvalidationListener} : des lignes d'une famille de tables ont changé
+ * hors de cette instance. {@code complete} indique que les identifiants ne suffisent pas (création, suppression,
+ * trop de lignes, notifications possiblement perdues) et que le cache concerné doit tout relire.
+ */
+public record Invalidation(Entite entite, Set<UUID> ids, boolean complete) {
+    public enum Entite {
+        VEHICULE,
+        EVENEMENT,
+        INTERVENTION,
+        REFERENCE
+    }
+}
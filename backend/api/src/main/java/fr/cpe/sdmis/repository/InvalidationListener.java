@@ -0,0 +1,203 @@
+package fr.cpe.sdmis.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Ecoute le canal PostgreSQL {@code sdmis_invalidation} (triggers de src/main/resources/db/notifications.sql) sur une
+ * connexion dédiée et republie les notifications en {@link Invalidation} typées, regroupées toutes les {@code lot-ms} :
+ * mille mises à jour d'un même véhicule ne déclenchent qu'une relecture. Les écritures de cette instance
+ * (même application_name) sont ignorées, ses caches étant déjà à jour.
+ * Après une coupure, tout est invalidé : des notifications ont pu être perdues.
+ */
+@Component
+@ConditionalOnProperty(name = "sdmis.notifications.actif", havingValue = "true")
+public class InvalidationListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InvalidationListener.class);
+    private static final String CANAL = "sdmis_invalidation";
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher publisher;
+    private final int lotMs;
+    private final int idsMax;
+    private final long reconnexionMs;
+    private final Map<Invalidation.Entite, Accumulation> enAttente = new EnumMap<>(Invalidation.Entite.class);
+    private volatile boolean actif = true;
+    private Thread ecouteur;
+
+    public InvalidationListener(DataSource dataSource,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher publisher,
+                                @Value("${sdmis.notifications.lot-ms:200}") int lotMs,
+                                @Value("${sdmis.notifications.ids-max:500}") int idsMax,
+                                @Value("${sdmis.notifications.reconnexion-ms:5000}") long reconnexionMs) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.publisher = publisher;
+        this.lotMs = Math.max(1, lotMs);
+        this.idsMax = Math.max(1, idsMax);
+        this.reconnexionMs = Math.max(100, reconnexionMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void demarrer() {
+        ecouteur = new Thread(this::ecouter, "pg-invalidation");
+        ecouteur.setDaemon(true);
+        ecouteur.start();
+    }
+
+    @PreDestroy
+    void arreter() {
+        actif = false;
+        if (ecouteur != null) {
+            ecouteur.interrupt();
+        }
+    }
+
+    private void ecouter() {
+        boolean reprise = false;
+        while (actif) {
+            try (Connection connexion = dataSource.getConnection()) {
+                try {
+                    String source = abonner(connexion);
+                    LOGGER.info("Ecoute des invalidations PostgreSQL (canal {}, session {})", CANAL, source);
+                    if (reprise) {
+                        for (Invalidation.Entite entite : Invalidation.Entite.values()) {
+                            accumulation(entite).complete = true;
+                        }
+                    }
+                    recevoir(connexion.unwrap(PGConnection.class), source);
+                } finally {
+                    // La connexion retourne au pool : elle ne doit plus recevoir de notifications
+                    try (Statement statement = connexion.createStatement()) {
+                        statement.execute("UNLISTEN *");
+                    } catch (SQLException e) {
+                        LOGGER.debug("UNLISTEN impossible : {}", e.getMessage());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!actif) {
+                    return;
+                }
+                LOGGER.warn("Ecoute des invalidations interrompue, nouvelle tentative dans {} ms : {}", reconnexionMs, e.getMessage());
+                reprise = true;
+                try {
+                    Thread.sleep(reconnexionMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private String abonner(Connection connexion) throws SQLException {
+        try (Statement statement = connexion.createStatement()) {
+            statement.execute("LISTEN " + CANAL);
+            try (ResultSet rs = statement.executeQuery("SELECT current_setting('application_name')")) {
+                return rs.next() ? rs.getString(1) : "";
+            }
+        }
+    }
+
+    private void recevoir(PGConnection connexion, String source) throws SQLException {
+        long prochainLot = System.currentTimeMillis() + lotMs;
+        while (actif) {
+            PGNotification[] notifications = connexion.getNotifications(lotMs);
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    accumuler(notification.getParameter(), source);
+                }
+            }
+            long maintenant = System.currentTimeMillis();
+            if (maintenant >= prochainLot) {
+                publier();
+                prochainLot = maintenant + lotMs;
+            }
+        }
+    }
+
+    private void accumuler(String payload, String source) {
+        JsonNode notification;
+        try {
+            notification = objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("Notification d'invalidation illisible : {}", payload);
+            return;
+        }
+        if (!source.isEmpty() && source.equals(notification.path("source").asText())) {
+            return;
+        }
+        Invalidation.Entite entite = switch (notification.path("table").asText()) {
+            case "vehicule", "est_equipe_de" -> Invalidation.Entite.VEHICULE;
+            case "evenement" -> Invalidation.Entite.EVENEMENT;
+            case "intervention" -> Invalidation.Entite.INTERVENTION;
+            default -> Invalidation.Entite.REFERENCE;
+        };
+        Accumulation accumulation = accumulation(entite);
+        String id = notification.path("id").asText(null);
+        if (id == null || !"UPDATE".equals(notification.path("op").asText())) {
+            accumulation.complete = true;
+            return;
+        }
+        try {
+            accumulation.ids.add(UUID.fromString(id));
+        } catch (IllegalArgumentException e) {
+            accumulation.complete = true;
+        }
+        if (accumulation.ids.size() > idsMax) {
+            accumulation.complete = true;
+        }
+    }
+
+    private void publier() {
+        for (Map.Entry<Invalidation.Entite, Accumulation> entry : enAttente.entrySet()) {
+            Accumulation accumulation = entry.getValue();
+            if (!accumulation.complete && accumulation.ids.isEmpty()) {
+                continue;
+            }
+            Invalidation invalidation = new Invalidation(entry.getKey(),
+                    accumulation.complete ? Set.of() : Set.copyOf(accumulation.ids), accumulation.complete);
+            accumulation.ids.clear();
+            accumulation.complete = false;
+            try {
+                publisher.publishEvent(invalidation);
+            } catch (RuntimeException e) {
+                LOGGER.error("Echec de l'invalidation {} : {}", invalidation.entite(), e.getMessage());
+            }
+        }
+    }
+
+    private Accumulation accumulation(Invalidation.Entite entite) {
+        return enAttente.computeIfAbsent(entite, cle -> new Accumulation());
+    }
+
+    private static final class Accumulation {
+        private final Set<UUID> ids = new HashSet<>();
+        private boolean complete;
+    }
+}
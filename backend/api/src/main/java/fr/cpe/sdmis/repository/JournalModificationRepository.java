@@ -0,0 +1,49 @@
+package fr.cpe.sdmis.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Lecture du journal des modifications alimenté par triggers (cf. src/main/resources/db/journal_modification.sql).
+ */
+@Repository
+public class JournalModificationRepository {
+    public static final String VEHICULE = "vehicule";
+    public static final String EVENEMENT = "evenement";
+    public static final String INTERVENTION = "intervention";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public JournalModificationRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Version à remettre au client : plus petite transaction encore en cours. Tout ce qui est en dessous est
+     * terminé et déjà visible ; ce qui est au-dessus sera relu à la prochaine synchronisation (au pire en double).
+     */
+    public long version() {
+        Long version = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT CAST(CAST(pg_snapshot_xmin(pg_current_snapshot()) AS text) AS bigint)", Long.class);
+        return version != null ? version : 0L;
+    }
+
+    public List<Modification> depuis(long version) {
+        return jdbcTemplate.query("""
+                SELECT entite, id_entite, id_secondaire, supprime
+                FROM journal_modification
+                WHERE version >= CAST(CAST(:version AS text) AS xid8)
+                """, new MapSqlParameterSource("version", version), (rs, rowNum) -> new Modification(
+                rs.getString("entite"),
+                rs.getObject("id_entite", UUID.class),
+                rs.getObject("id_secondaire", UUID.class),
+                rs.getBoolean("supprime")
+        ));
+    }
+
+    public record Modification(String entite, UUID id, UUID idSecondaire, boolean supprime) { }
+}
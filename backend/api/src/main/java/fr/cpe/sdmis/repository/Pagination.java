@@ -0,0 +1,36 @@
+package fr.cpe.sdmis.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Réglages communs des lectures d'historique : borne des pages et template de lecture en flux.
+ * Le template de flux fixe une taille de lot : dans une transaction (autocommit désactivé), le driver PostgreSQL
+ * ouvre alors un curseur côté serveur et ne garde en mémoire qu'un lot de lignes à la fois.
+ */
+@Component
+public class Pagination {
+    private final int limiteMax;
+    private final NamedParameterJdbcTemplate flux;
+
+    public Pagination(DataSource dataSource,
+                      @Value("${sdmis.pagination.limite-max:500}") int limiteMax,
+                      @Value("${sdmis.pagination.flux-fetch-size:500}") int fetchSize) {
+        this.limiteMax = limiteMax;
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setFetchSize(fetchSize);
+        this.flux = new NamedParameterJdbcTemplate(template);
+    }
+
+    public int limite(int demandee) {
+        return Math.max(1, Math.min(demandee, limiteMax));
+    }
+
+    NamedParameterJdbcTemplate flux() {
+        return flux;
+    }
+}
@@ -0,0 +1,97 @@
+package fr.cpe.sdmis.repository;
+
+import fr.cpe.sdmis.dto.PositionHistoriqueResponse;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Repository
+public class PositionHistoriqueRepository {
+    private static final DateTimeFormatter SUFFIXE_PARTITION = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String COPY_SQL = "COPY position_historique (id_vehicule, horodatage, latitude, longitude) FROM STDIN WITH (FORMAT csv)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Set<YearMonth> partitionsCreees = ConcurrentHashMap.newKeySet();
+
+    public PositionHistoriqueRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long copier(List<PointPosition> points) {
+        if (points.isEmpty()) {
+            return 0;
+        }
+        points.stream()
+                .map(point -> YearMonth.from(point.horodatage().atOffset(ZoneOffset.UTC)))
+                .distinct()
+                .forEach(this::creerPartition);
+
+        StringBuilder csv = new StringBuilder(points.size() * 80);
+        for (PointPosition point : points) {
+            csv.append(point.idVehicule()).append(',')
+                    .append(point.horodatage()).append(',')
+                    .append(point.latitude()).append(',')
+                    .append(point.longitude()).append('\n');
+        }
+        Long copies = jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class)
+                        .getCopyAPI()
+                        .copyIn(COPY_SQL, new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new SQLException("Echec COPY position_historique", e);
+            }
+        });
+        return copies != null ? copies : 0;
+    }
+
+    public List<PositionHistoriqueResponse> findTrace(UUID idVehicule, Instant debut, Instant fin, int limite) {
+        return jdbcTemplate.query("""
+                SELECT horodatage, latitude, longitude
+                FROM position_historique
+                WHERE id_vehicule = :vehicule
+                  AND horodatage >= :debut
+                  AND horodatage < :fin
+                ORDER BY horodatage
+                LIMIT :limite
+                """, new MapSqlParameterSource()
+                .addValue("vehicule", idVehicule)
+                .addValue("debut", Timestamp.from(debut))
+                .addValue("fin", Timestamp.from(fin))
+                .addValue("limite", limite), (rs, rowNum) ->
+                new PositionHistoriqueResponse(
+                        rs.getTimestamp("horodatage").toInstant(),
+                        rs.getDouble("latitude"),
+                        rs.getDouble("longitude")
+                ));
+    }
+
+    private void creerPartition(YearMonth mois) {
+        if (partitionsCreees.contains(mois)) {
+            return;
+        }
+        String debut = mois.atDay(1).toString();
+        String fin = mois.plusMonths(1).atDay(1).toString();
+        jdbcTemplate.getJdbcTemplate().execute(
+                "CREATE TABLE IF NOT EXISTS position_historique_" + mois.format(SUFFIXE_PARTITION)
+                        + " PARTITION OF position_historique FOR VALUES FROM ('" + debut + " 00:00:00+00') TO ('" + fin + " 00:00:00+00')");
+        partitionsCreees.add(mois);
+    }
+
+    public record PointPosition(UUID idVehicule, Instant horodatage, double latitude, double longitude) { }
+}
@@ -0,0 +1,154 @@
+package fr.cpe.sdmis.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cache des tables de référence (statuts, sévérités, types d'évènement, équipements, casernes) : nom → identifiant
+ * et identifiant → ligne. Chargé d'un bloc puis remplacé atomiquement ; les lectures ne touchent jamais la base.
+ * La comparaison des noms est insensible à la casse, comme les anciens {@code lower(nom) = lower(:nom)}.
+ */
+@Repository
+public class ReferenceCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceCache.class);
+    private static final int ESSAIS_CHARGEMENT = 5;
+
+    public enum Table {
+        STATUT_INTERVENTION("statut_intervention", "id_statut_intervention", "nom", "nom"),
+        STATUT_VEHICULE("statut_vehicule", "id_statut", "nom_statut", "nom_statut"),
+        STATUT_EVENEMENT("statut_evenement", "id_statut", "nom_statut", "nom_statut"),
+        SEVERITE("severite", "id_severite", "nom_severite", "id_severite"),
+        TYPE_EVENEMENT("type_evenement", "id_type_evenement", "nom", "id_type_evenement"),
+        EQUIPEMENT("equipement", "id_equipement", "nom_equipement", "id_equipement"),
+        CASERNE("caserne", "id_caserne", "nom_de_la_caserne", "id_caserne");
+
+        private final String nomTable;
+        private final String colonneId;
+        private final String colonneNom;
+        private final String ordre;
+
+        Table(String nomTable, String colonneId, String colonneNom, String ordre) {
+            this.nomTable = nomTable;
+            this.colonneId = colonneId;
+            this.colonneNom = colonneNom;
+            this.ordre = ordre;
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final VersionsCollections versions;
+    private final AtomicReference<References> courantes = new AtomicReference<>(new References(0L, null));
+
+    public ReferenceCache(NamedParameterJdbcTemplate jdbcTemplate, VersionsCollections versions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.versions = versions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prechauffer() {
+        try {
+            references();
+        } catch (DataAccessException e) {
+            LOGGER.warn("Chargement des références impossible, chargement au premier accès : {}", e.getMessage());
+        }
+    }
+
+    public Optional<UUID> id(Table table, String nom) {
+        if (nom == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(references().get(table).idsParNom().get(nom.toLowerCase(Locale.ROOT)));
+    }
+
+    public UUID idOrThrow(Table table, String nom) {
+        return id(table, nom).orElseThrow(() -> new IllegalStateException("Référence introuvable en base (" + table.nomTable + ") : " + nom));
+    }
+
+    public Optional<Map<String, Object>> ligne(Table table, UUID id) {
+        return Optional.ofNullable(references().get(table).parId().get(id));
+    }
+
+    public List<Map<String, Object>> lignes(Table table) {
+        return references().get(table).lignes();
+    }
+
+    /**
+     * Oublie les références : la prochaine lecture recharge toutes les tables et l'ETag des références change.
+     */
+    public void invalider() {
+        courantes.updateAndGet(references -> new References(references.generation() + 1, null));
+        versions.incrementer(VersionsCollections.REFERENCES);
+    }
+
+    @EventListener
+    public void surInvalidation(Invalidation invalidation) {
+        if (invalidation.entite() == Invalidation.Entite.REFERENCE) {
+            invalider();
+        }
+    }
+
+    private Map<Table, Contenu> references() {
+        References references = courantes.get();
+        return references.chargees() ? references.tables() : charger();
+    }
+
+    private synchronized Map<Table, Contenu> charger() {
+        for (int essai = 1; ; essai++) {
+            References vue = courantes.get();
+            if (vue.chargees()) {
+                return vue.tables();
+            }
+            Map<Table, Contenu> tables = new EnumMap<>(Table.class);
+            for (Table table : Table.values()) {
+                tables.put(table, lire(table));
+            }
+            References chargees = new References(vue.generation() + 1, Collections.unmodifiableMap(tables));
+            // Une invalidation pendant la lecture peut signaler une écriture déjà manquée : on relit
+            if (courantes.compareAndSet(vue, chargees) || essai >= ESSAIS_CHARGEMENT) {
+                courantes.set(chargees);
+                LOGGER.info("Références chargées ({} tables, génération {})", tables.size(), chargees.generation());
+                return chargees.tables();
+            }
+        }
+    }
+
+    private Contenu lire(Table table) {
+        List<Map<String, Object>> lignes = jdbcTemplate.queryForList(
+                "SELECT * FROM " + table.nomTable + " ORDER BY " + table.ordre, Map.of());
+        Map<String, UUID> idsParNom = new HashMap<>();
+        Map<UUID, Map<String, Object>> parId = new LinkedHashMap<>();
+        for (Map<String, Object> ligne : lignes) {
+            UUID id = (UUID) ligne.get(table.colonneId);
+            Object nom = ligne.get(table.colonneNom);
+            if (nom != null) {
+                idsParNom.putIfAbsent(nom.toString().toLowerCase(Locale.ROOT), id);
+            }
+            parId.put(id, Collections.unmodifiableMap(ligne));
+        }
+        return new Contenu(List.copyOf(parId.values()), Map.copyOf(idsParNom), Collections.unmodifiableMap(parId));
+    }
+
+    private record References(long generation, Map<Table, Contenu> tables) {
+        boolean chargees() {
+            return tables != null;
+        }
+    }
+
+    private record Contenu(List<Map<String, Object>> lignes, Map<String, UUID> idsParNom, Map<UUID, Map<String, Object>> parId) { }
+}
@@ -2,68 +2,44 @@ package fr.cpe.sdmis.repository;
 
 import fr.cpe.sdmis.dto.SeveriteResponse;
 import fr.cpe.sdmis.dto.SeveriteEchelleResponse;
-import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
-import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public class SeveriteRepository {
-    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ReferenceCache references;
 
-    public SeveriteRepository(NamedParameterJdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public SeveriteRepository(ReferenceCache references) {
+        this.references = references;
     }
 
     public List<SeveriteResponse> findAll() {
-        return jdbcTemplate.query(
-                "SELECT id_severite, nom_severite, valeur_échelle AS valeur_echelle, nb_vehicules_necessaire FROM severite ORDER BY id_severite",
-                new SeveriteRowMapper()
-        );
+        return references.lignes(ReferenceCache.Table.SEVERITE).stream()
+                .map(ligne -> new SeveriteResponse(
+                        (UUID) ligne.get("id_severite"),
+                        (String) ligne.get("nom_severite"),
+                        valeurEchelle(ligne),
+                        ligne.get("nb_vehicules_necessaire") instanceof Number nb ? nb.intValue() : 0
+                ))
+                .toList();
     }
 
     public List<SeveriteEchelleResponse> findEchelles() {
-        return jdbcTemplate.query(
-                "SELECT id_severite, valeur_échelle AS valeur_echelle FROM severite ORDER BY id_severite",
-                new SeveriteEchelleRowMapper()
-        );
+        return references.lignes(ReferenceCache.Table.SEVERITE).stream()
+                .map(ligne -> new SeveriteEchelleResponse((UUID) ligne.get("id_severite"), valeurEchelle(ligne)))
+                .toList();
     }
 
     public Optional<UUID> findIdByNom(String nomSeverite) {
-        return jdbcTemplate.query("""
-                        SELECT id_severite FROM severite
-                        WHERE lower(nom_severite) = lower(:nom)
-                        LIMIT 1
-                        """,
-                new MapSqlParameterSource("nom", nomSeverite),
-                rs -> rs.next() ? Optional.of(rs.getObject(1, UUID.class)) : Optional.empty());
+        return references.id(ReferenceCache.Table.SEVERITE, nomSeverite);
     }
 
-    private static class SeveriteRowMapper implements RowMapper<SeveriteResponse> {
-        @Override
-        public SeveriteResponse mapRow(ResultSet rs, int rowNum) throws SQLException {
-            return new SeveriteResponse(
-                    rs.getObject("id_severite", UUID.class),
-                    rs.getString("nom_severite"),
-                    rs.getString("valeur_echelle"),
-                    rs.getInt("nb_vehicules_necessaire")
-            );
-        }
-    }
-
-    private static class SeveriteEchelleRowMapper implements RowMapper<SeveriteEchelleResponse> {
-        @Override
-        public SeveriteEchelleResponse mapRow(ResultSet rs, int rowNum) throws SQLException {
-            return new SeveriteEchelleResponse(
-                    rs.getObject("id_severite", UUID.class),
-                    rs.getString("valeur_echelle")
-            );
-        }
+    private static String valeurEchelle(Map<String, Object> ligne) {
+        return Objects.toString(ligne.get("valeur_échelle"), null);
     }
 }
@@ -0,0 +1,133 @@
+package fr.cpe.sdmis.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Index en mémoire plaque → id_vehicule et nom d'équipement (minuscule) → id_equipement,
+ * utilisé par le chemin d'ingestion télémétrie pour écrire par clé primaire.
+ */
+@Repository
+public class VehiculeIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VehiculeIndex.class);
+    private static final int ESSAIS_CHARGEMENT = 5;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final long rechargementMinMs;
+    private final AtomicReference<Etat> etat = new AtomicReference<>(new Etat(0L, null));
+
+    public VehiculeIndex(NamedParameterJdbcTemplate jdbcTemplate,
+                         @Value("${sdmis.telemetrie.index.rechargement-min-ms:5000}") long rechargementMinMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rechargementMinMs = rechargementMinMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void prechauffer() {
+        try {
+            recharger();
+        } catch (DataAccessException e) {
+            LOGGER.warn("Préchauffage de l'index véhicules impossible, chargement au premier accès : {}", e.getMessage());
+        }
+    }
+
+    public Optional<UUID> idVehicule(String plaque) {
+        if (plaque == null) {
+            return Optional.empty();
+        }
+        Index courant = courant();
+        UUID id = courant.vehicules().get(plaque);
+        // Plaque absente : le véhicule a peut-être été créé par une autre instance, rechargement borné dans le temps
+        if (id == null && courant.perime(rechargementMinMs)) {
+            id = rechargerDepuis(courant).vehicules().get(plaque);
+        }
+        return Optional.ofNullable(id);
+    }
+
+    public Optional<UUID> idEquipement(String nomEquipement) {
+        if (nomEquipement == null) {
+            return Optional.empty();
+        }
+        String cle = nomEquipement.toLowerCase(Locale.ROOT);
+        Index courant = courant();
+        UUID id = courant.equipements().get(cle);
+        if (id == null && courant.perime(rechargementMinMs)) {
+            id = rechargerDepuis(courant).equipements().get(cle);
+        }
+        return Optional.ofNullable(id);
+    }
+
+    public void invalider() {
+        etat.updateAndGet(courant -> new Etat(courant.generation() + 1, null));
+    }
+
+    @EventListener
+    public void surInvalidation(Invalidation invalidation) {
+        // Plaques et noms d'équipement ne changent qu'aux créations, suppressions et modifications de référence
+        if (invalidation.entite() == Invalidation.Entite.REFERENCE
+                || (invalidation.entite() == Invalidation.Entite.VEHICULE && invalidation.complete())) {
+            invalider();
+        }
+    }
+
+    public synchronized Index recharger() {
+        for (int essai = 1; ; essai++) {
+            Etat vue = etat.get();
+            Map<String, UUID> vehicules = new HashMap<>();
+            jdbcTemplate.query("SELECT plaque_immat, id_vehicule FROM vehicule", rs -> {
+                vehicules.put(rs.getString("plaque_immat"), rs.getObject("id_vehicule", UUID.class));
+            });
+            Map<String, UUID> equipements = new HashMap<>();
+            jdbcTemplate.query("SELECT nom_equipement, id_equipement FROM equipement", rs -> {
+                equipements.put(rs.getString("nom_equipement").toLowerCase(Locale.ROOT), rs.getObject("id_equipement", UUID.class));
+            });
+            Index charge = new Index(Map.copyOf(vehicules), Map.copyOf(equipements), System.currentTimeMillis());
+            // Une invalidation pendant la lecture peut signaler une plaque déjà manquée : on relit plutôt que
+            // d'installer un index périmé
+            if (!etat.compareAndSet(vue, new Etat(vue.generation(), charge))) {
+                if (essai < ESSAIS_CHARGEMENT) {
+                    continue;
+                }
+                LOGGER.warn("Index véhicules installé malgré {} invalidations concurrentes", essai);
+                etat.updateAndGet(courant -> new Etat(courant.generation(), charge));
+            }
+            LOGGER.info("Index véhicules chargé ({} véhicules, {} équipements)", vehicules.size(), equipements.size());
+            return charge;
+        }
+    }
+
+    private Index courant() {
+        Index courant = etat.get().index();
+        return courant != null ? courant : rechargerDepuis(null);
+    }
+
+    private synchronized Index rechargerDepuis(Index vu) {
+        // Un autre thread a pu recharger pendant l'attente du verrou
+        Index courant = etat.get().index();
+        if (courant != null && courant != vu) {
+            return courant;
+        }
+        return recharger();
+    }
+
+    private record Etat(long generation, Index index) { }
+
+    public record Index(Map<String, UUID> vehicules, Map<String, UUID> equipements, long chargeLe) {
+        boolean perime(long ageMinMs) {
+            return System.currentTimeMillis() - chargeLe >= ageMinMs;
+        }
+    }
+}
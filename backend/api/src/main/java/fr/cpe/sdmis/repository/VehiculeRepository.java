@@ -12,20 +12,25 @@ import fr.cpe.sdmis.dto.VehiculeCreateRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.SqlArrayValue;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
 import java.sql.ResultSetMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.time.OffsetDateTime;
+import java.sql.Types;
 import java.time.ZoneOffset;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -35,10 +40,22 @@ import java.util.UUID;
 public class VehiculeRepository {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VehiculeRepository.class);
+    private static final String UPDATE_POSITION_SQL = """
+            UPDATE vehicule
+            SET latitude = :lat,
+                longitude = :lon,
+                derniere_position_connue = COALESCE(:ts, derniere_position_connue)
+            WHERE id_vehicule = :id
+            """;
+    private static final int RESSOURCES_PAR_REQUETE = 1000;
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final VehiculeIndex vehiculeIndex;
+    private final ReferenceCache references;
 
-    public VehiculeRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    public VehiculeRepository(NamedParameterJdbcTemplate jdbcTemplate, VehiculeIndex vehiculeIndex, ReferenceCache references) {
         this.jdbcTemplate = jdbcTemplate;
+        this.vehiculeIndex = vehiculeIndex;
+        this.references = references;
     }
 
     public List<VehiculeOperationnelResponse> findOperationnels() {
@@ -57,14 +74,14 @@ public class VehiculeRepository {
     }
 
     public List<VehiculeSnapshotResponse> findSnapshots() {
-        return jdbcTemplate.query(baseSnapshotQuery(""), new MapSqlParameterSource(), new SnapshotRowMapper());
+        return jdbcTemplate.query(baseSnapshotQuery(""), new MapSqlParameterSource(), new SnapshotExtractor());
     }
 
     public Optional<VehiculeSnapshotResponse> findSnapshotById(UUID vehiculeId) {
         List<VehiculeSnapshotResponse> res = jdbcTemplate.query(
                 baseSnapshotQuery("WHERE v.id_vehicule = :id"),
                 new MapSqlParameterSource("id", vehiculeId),
-                new SnapshotRowMapper()
+                new SnapshotExtractor()
         );
         return res.stream().findFirst();
     }
@@ -73,11 +90,22 @@ public class VehiculeRepository {
         List<VehiculeSnapshotResponse> res = jdbcTemplate.query(
                 baseSnapshotQuery("WHERE v.plaque_immat = :plaque"),
                 new MapSqlParameterSource("plaque", idVehicule),
-                new SnapshotRowMapper()
+                new SnapshotExtractor()
         );
         return res.stream().findFirst();
     }
 
+    public List<VehiculeSnapshotResponse> findSnapshotsByIds(Collection<UUID> vehiculeIds) {
+        if (vehiculeIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                baseSnapshotQuery("WHERE v.id_vehicule = ANY(:ids)"),
+                new MapSqlParameterSource("ids", new SqlArrayValue("uuid", vehiculeIds.toArray())),
+                new SnapshotExtractor()
+        );
+    }
+
     public List<VehiculeIdentResponse> findCleIdent() {
         return jdbcTemplate.query("""
                 SELECT id_vehicule, plaque_immat, cle_ident
@@ -95,16 +123,8 @@ public class VehiculeRepository {
                        i.id_evenement,
                        e.latitude AS e_lat,
                        e.longitude AS e_lon,
-                       COALESCE(
-                         JSON_AGG(
-                           JSON_BUILD_OBJECT(
-                             'nom_equipement', eq.nom_equipement,
-                             'contenance_courante', eed.contenance_courante_
-                           )
-                           ORDER BY eq.nom_equipement
-                         ) FILTER (WHERE eq.id_equipement IS NOT NULL),
-                         '[]'::json
-                       ) AS equipements
+                       eq.nom_equipement,
+                       eed.contenance_courante_
                 FROM vehicule v
                 JOIN statut_vehicule sv ON sv.id_statut = v.id_statut
                 JOIN intervention i ON i.id_vehicule = v.id_vehicule
@@ -116,29 +136,28 @@ public class VehiculeRepository {
                 WHERE sv.nom_statut = 'En route'
                   AND se.nom_statut = 'En intervention'
                   AND si.nom = 'En cours'
-                GROUP BY v.id_vehicule, v.plaque_immat, v.latitude, v.longitude, i.id_evenement, e.latitude, e.longitude
-                """, new VehiculeEnRouteRowMapper());
+                ORDER BY v.id_vehicule, i.id_evenement, eq.nom_equipement
+                """, new VehiculeEnRouteExtractor());
     }
 
-    public void updateVehiculeStatutEnIntervention(UUID idVehicule) {
+    public boolean updateVehiculeStatutEnIntervention(UUID idVehicule) {
         try {
-            UUID statutVehiculeId = jdbcTemplate.queryForObject("""
-                    SELECT id_statut
-                    FROM statut_vehicule
-                    WHERE lower(nom_statut) = lower(:nom)
-                    """, new MapSqlParameterSource("nom", "En intervention"), UUID.class);
-            jdbcTemplate.update("""
+            Optional<UUID> statut = references.id(ReferenceCache.Table.STATUT_VEHICULE, "En intervention");
+            if (statut.isEmpty()) {
+                LOGGER.error("Statut véhicule 'En intervention' introuvable, mise à jour ignorée");
+                return false;
+            }
+            return jdbcTemplate.update("""
                     UPDATE vehicule
                     SET id_statut = :statut
                     WHERE id_vehicule = :vehicule
                     """, new MapSqlParameterSource()
-                    .addValue("statut", statutVehiculeId)
-                    .addValue("vehicule", idVehicule));
-        } catch (EmptyResultDataAccessException e) {
-            LOGGER.error("Statut véhicule 'En intervention' introuvable, mise à jour ignorée");
+                    .addValue("statut", statut.get())
+                    .addValue("vehicule", idVehicule)) > 0;
         } catch (DataAccessException e) {
             LOGGER.error("Echec mise à jour statut 'En intervention' pour véhicule {} : {}", idVehicule, e.getMessage());
         }
+        return false;
     }
 
     public UUID createVehicule(VehiculeCreateRequest request) {
@@ -176,65 +195,94 @@ public class VehiculeRepository {
                 }
             });
         }
+        vehiculeIndex.invalider();
         return vehiculeId;
     }
 
     private UUID resolveStatutVehicule(String nom) {
-        try {
-            return jdbcTemplate.queryForObject("""
-                    SELECT id_statut
-                    FROM statut_vehicule
-                    WHERE lower(nom_statut) = lower(:nom)
-                    """, new MapSqlParameterSource("nom", nom), UUID.class);
-        } catch (EmptyResultDataAccessException e) {
-            throw new IllegalStateException("Statut véhicule introuvable : " + nom);
-        }
+        return references.id(ReferenceCache.Table.STATUT_VEHICULE, nom)
+                .orElseThrow(() -> new IllegalStateException("Statut véhicule introuvable : " + nom));
     }
 
-    public void updateVehicule(VehiculeUpdateRequest request) {
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("plaque", request.plaqueImmat())
-                .addValue("lat", request.lat())
-                .addValue("lon", request.lon())
-                .addValue("ts", request.timestamp() != null ? java.sql.Timestamp.from(request.timestamp().toInstant()) : null);
-
-        jdbcTemplate.update("""
-                UPDATE vehicule
-                SET latitude = :lat,
-                    longitude = :lon,
-                    derniere_position_connue = COALESCE(:ts, derniere_position_connue)
-                WHERE plaque_immat = :plaque
-                """, params);
-
-        if (request.ressources() != null) {
+    @Transactional
+    public int[] updateVehicules(List<VehiculeUpdateRequest> requests) {
+        int[] updated = new int[requests.size()];
+        List<SqlParameterSource> positions = new ArrayList<>();
+        List<Integer> indexPositions = new ArrayList<>();
+        Map<CleRessource, Integer> ressources = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            VehiculeUpdateRequest request = requests.get(i);
+            UUID idVehicule = vehiculeIndex.idVehicule(request.plaqueImmat()).orElse(null);
+            if (idVehicule == null) {
+                continue;
+            }
+            positions.add(positionParams(idVehicule, request));
+            indexPositions.add(i);
+            if (request.ressources() == null) {
+                continue;
+            }
             request.ressources().forEach((nom, contenance) -> {
-                if(nom == "Inconnu") {
+                if ("Inconnu".equals(nom)) {
                     return;
                 }
-                MapSqlParameterSource resParams = new MapSqlParameterSource()
-                        .addValue("plaque", request.plaqueImmat())
-                        .addValue("nom", nom)
-                        .addValue("contenance", contenance);
-                try {
-                    int updated = jdbcTemplate.update("""
-                            UPDATE est_equipe_de eed
-                            SET contenance_courante_ = :contenance
-                            FROM vehicule v
-                            JOIN equipement eq ON lower(eq.nom_equipement) = lower(:nom)
-                            WHERE v.plaque_immat = :plaque
-                              AND eed.id_vehicule = v.id_vehicule
-                              AND eed.id_equipement = eq.id_equipement
-                            """, resParams);
-                    if (updated == 0) {
-                        LOGGER.warn("Aucune ressource mise à jour pour véhicule {} et équipement '{}'", request.plaqueImmat(), nom);
-                    }
-                } catch (DataAccessException ex) {
-                    LOGGER.error("Echec mise à jour ressource '{}' pour véhicule {} : {}", nom, request.plaqueImmat(), ex.getMessage());
-                }
+                vehiculeIndex.idEquipement(nom).ifPresentOrElse(
+                        idEquipement -> ressources.put(new CleRessource(idVehicule, idEquipement), contenance),
+                        () -> LOGGER.warn("Equipement '{}' inconnu, ressource ignorée pour véhicule {}", nom, request.plaqueImmat()));
             });
         }
+        if (positions.isEmpty()) {
+            return updated;
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_POSITION_SQL, positions.toArray(SqlParameterSource[]::new));
+        for (int k = 0; k < counts.length; k++) {
+            updated[indexPositions.get(k)] = counts[k];
+            if (counts[k] == 0) {
+                // Véhicule supprimé depuis le chargement de l'index
+                vehiculeIndex.invalider();
+            }
+        }
+        updateRessources(ressources);
+        return updated;
+    }
+
+    private void updateRessources(Map<CleRessource, Integer> ressources) {
+        List<Map.Entry<CleRessource, Integer>> entries = new ArrayList<>(ressources.entrySet());
+        for (int debut = 0; debut < entries.size(); debut += RESSOURCES_PAR_REQUETE) {
+            List<Map.Entry<CleRessource, Integer>> lot = entries.subList(debut, Math.min(entries.size(), debut + RESSOURCES_PAR_REQUETE));
+            StringBuilder values = new StringBuilder();
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            for (int j = 0; j < lot.size(); j++) {
+                if (j > 0) {
+                    values.append(", ");
+                }
+                values.append("(CAST(:v").append(j).append(" AS uuid), CAST(:e").append(j)
+                        .append(" AS uuid), CAST(:c").append(j).append(" AS integer))");
+                params.addValue("v" + j, lot.get(j).getKey().idVehicule())
+                        .addValue("e" + j, lot.get(j).getKey().idEquipement())
+                        .addValue("c" + j, lot.get(j).getValue(), Types.INTEGER);
+            }
+            jdbcTemplate.update("""
+                    UPDATE est_equipe_de eed
+                    SET contenance_courante_ = r.contenance
+                    FROM (VALUES\s""" + values + """
+                    ) AS r(id_vehicule, id_equipement, contenance)
+                    WHERE eed.id_vehicule = r.id_vehicule
+                      AND eed.id_equipement = r.id_equipement
+                    """, params);
+        }
+    }
+
+    private MapSqlParameterSource positionParams(UUID idVehicule, VehiculeUpdateRequest request) {
+        return new MapSqlParameterSource()
+                .addValue("id", idVehicule)
+                .addValue("lat", request.lat())
+                .addValue("lon", request.lon())
+                .addValue("ts", request.timestamp() != null ? Timestamp.from(request.timestamp().toInstant()) : null, Types.TIMESTAMP);
     }
 
+    private record CleRessource(UUID idVehicule, UUID idEquipement) { }
+
     private static class VehiculeOperationnelRowMapper implements RowMapper<VehiculeOperationnelResponse> {
         @Override
         public VehiculeOperationnelResponse mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -249,39 +297,35 @@ public class VehiculeRepository {
         }
     }
 
-    private static class SnapshotRowMapper implements RowMapper<VehiculeSnapshotResponse> {
+    /**
+     * Regroupe les lignes (véhicule × équipement), triées par véhicule, en un snapshot par véhicule.
+     */
+    private static class SnapshotExtractor implements ResultSetExtractor<List<VehiculeSnapshotResponse>> {
         @Override
-        public VehiculeSnapshotResponse mapRow(ResultSet rs, int rowNum) throws SQLException {
-            UUID id = rs.getObject("id_vehicule", UUID.class);
-            String plaque = rs.getString("plaque_immat");
-            double lat = rs.getDouble("latitude");
-            double lon = rs.getDouble("longitude");
-            OffsetDateTime derniere = rs.getTimestamp("derniere_position_connue")
-                    .toInstant()
-                    .atOffset(ZoneOffset.UTC);
-            String statut = rs.getString("nom_statut");
-            String caserne = rs.getString("nom_de_la_caserne");
-
-            Object rawEquipements = rs.getObject("equipements");
-            List<EquipementContenanceResponse> equipements = new ArrayList<>();
-            if (rawEquipements != null) {
-                // rawEquipements is a PGobject/JSON string; parse manually
-                try {
-                    String json = rawEquipements.toString();
-                    com.fasterxml.jackson.databind.ObjectMapper om = new com.fasterxml.jackson.databind.ObjectMapper();
-                    List<Map<String, Object>> list = om.readValue(json, om.getTypeFactory().constructCollectionType(List.class, Map.class));
-                    for (Map<String, Object> map : list) {
-                        String nom = (String) map.get("nom_equipement");
-                        Integer contenance = map.get("contenance_courante") != null
-                                ? ((Number) map.get("contenance_courante")).intValue()
-                                : null;
-                        equipements.add(new EquipementContenanceResponse(nom, contenance));
-                    }
-                } catch (Exception ignored) {
+        public List<VehiculeSnapshotResponse> extractData(ResultSet rs) throws SQLException {
+            List<VehiculeSnapshotResponse> snapshots = new ArrayList<>();
+            UUID courant = null;
+            List<EquipementContenanceResponse> equipements = null;
+            while (rs.next()) {
+                UUID id = rs.getObject("id_vehicule", UUID.class);
+                if (!id.equals(courant)) {
+                    courant = id;
+                    equipements = new ArrayList<>();
+                    Timestamp derniere = rs.getTimestamp("derniere_position_connue");
+                    snapshots.add(new VehiculeSnapshotResponse(
+                            id,
+                            rs.getString("plaque_immat"),
+                            rs.getDouble("latitude"),
+                            rs.getDouble("longitude"),
+                            derniere != null ? derniere.toInstant().atOffset(ZoneOffset.UTC) : null,
+                            rs.getString("nom_statut"),
+                            rs.getString("nom_de_la_caserne"),
+                            equipements
+                    ));
                 }
+                ajouterEquipement(rs, equipements);
             }
-
-            return new VehiculeSnapshotResponse(id, plaque, lat, lon, derniere, statut, caserne, equipements);
+            return snapshots;
         }
     }
 
@@ -296,37 +340,45 @@ public class VehiculeRepository {
         }
     }
 
-    private static class VehiculeEnRouteRowMapper implements RowMapper<VehiculeEnRouteResponse> {
+    private static class VehiculeEnRouteExtractor implements ResultSetExtractor<List<VehiculeEnRouteResponse>> {
         @Override
-        public VehiculeEnRouteResponse mapRow(ResultSet rs, int rowNum) throws SQLException {
-            List<EquipementContenanceResponse> equipements = new ArrayList<>();
-            Object rawEquipements = rs.getObject("equipements");
-            if (rawEquipements != null) {
-                try {
-                    String json = rawEquipements.toString();
-                    com.fasterxml.jackson.databind.ObjectMapper om = new com.fasterxml.jackson.databind.ObjectMapper();
-                    List<Map<String, Object>> list = om.readValue(json, om.getTypeFactory().constructCollectionType(List.class, Map.class));
-                    for (Map<String, Object> map : list) {
-                        String nom = (String) map.get("nom_equipement");
-                        Integer contenance = map.get("contenance_courante") != null
-                                ? ((Number) map.get("contenance_courante")).intValue()
-                                : null;
-                        equipements.add(new EquipementContenanceResponse(nom, contenance));
-                    }
-                } catch (Exception ignored) {
+        public List<VehiculeEnRouteResponse> extractData(ResultSet rs) throws SQLException {
+            List<VehiculeEnRouteResponse> vehicules = new ArrayList<>();
+            UUID vehiculeCourant = null;
+            UUID evenementCourant = null;
+            List<EquipementContenanceResponse> equipements = null;
+            while (rs.next()) {
+                UUID idVehicule = rs.getObject("id_vehicule", UUID.class);
+                UUID idEvenement = rs.getObject("id_evenement", UUID.class);
+                if (!idVehicule.equals(vehiculeCourant) || !idEvenement.equals(evenementCourant)) {
+                    vehiculeCourant = idVehicule;
+                    evenementCourant = idEvenement;
+                    equipements = new ArrayList<>();
+                    vehicules.add(new VehiculeEnRouteResponse(
+                            idVehicule,
+                            rs.getString("plaque_immat"),
+                            rs.getDouble("v_lat"),
+                            rs.getDouble("v_lon"),
+                            idEvenement,
+                            rs.getDouble("e_lat"),
+                            rs.getDouble("e_lon"),
+                            equipements
+                    ));
                 }
+                ajouterEquipement(rs, equipements);
             }
-            return new VehiculeEnRouteResponse(
-                    rs.getObject("id_vehicule", UUID.class),
-                    rs.getString("plaque_immat"),
-                    rs.getDouble("v_lat"),
-                    rs.getDouble("v_lon"),
-                    rs.getObject("id_evenement", UUID.class),
-                    rs.getDouble("e_lat"),
-                    rs.getDouble("e_lon"),
-                    equipements
-            );
+            return vehicules;
+        }
+    }
+
+    // Ligne sans équipement (LEFT JOIN) : le véhicule garde une liste vide
+    private static void ajouterEquipement(ResultSet rs, List<EquipementContenanceResponse> equipements) throws SQLException {
+        String nom = rs.getString("nom_equipement");
+        if (nom == null) {
+            return;
         }
+        int contenance = rs.getInt("contenance_courante_");
+        equipements.add(new EquipementContenanceResponse(nom, rs.wasNull() ? null : contenance));
     }
 
     public List<EquipementVehiculeResponse> findEquipementsByVehiculeId(UUID idVehicule) {
@@ -354,24 +406,15 @@ public class VehiculeRepository {
                   v.derniere_position_connue,
                   sv.nom_statut,
                   c.nom_de_la_caserne,
-                  COALESCE(
-                    JSON_AGG(
-                    JSON_BUILD_OBJECT(
-                        'nom_equipement', e.nom_equipement,
-                        'contenance_courante', eed.contenance_courante_
-                    )
-                    ORDER BY e.nom_equipement
-                    ) FILTER (WHERE e.id_equipement IS NOT NULL),
-                    '[]'::json
-                ) AS equipements
+                  e.nom_equipement,
+                  eed.contenance_courante_
                 FROM vehicule v
                 LEFT JOIN est_equipe_de eed ON eed.id_vehicule = v.id_vehicule
                 LEFT JOIN equipement e ON e.id_equipement = eed.id_equipement
                 JOIN statut_vehicule sv ON sv.id_statut = v.id_statut
                 JOIN caserne c ON c.id_caserne = v.id_caserne
                 """ + where + """
-                GROUP BY v.id_vehicule, v.plaque_immat, v.latitude, v.longitude, v.derniere_position_connue, sv.nom_statut, c.nom_de_la_caserne
-                ORDER BY v.id_vehicule
+                ORDER BY v.id_vehicule, e.nom_equipement
                 """;
     }
 }
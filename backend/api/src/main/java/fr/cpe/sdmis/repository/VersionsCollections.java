@@ -0,0 +1,54 @@
+package fr.cpe.sdmis.repository;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteurs de version par collection, incrémentés par les écritures : servent d'ETag fort aux lectures
+ * conditionnelles ({@code If-None-Match}). L'époque de démarrage fait partie de l'ETag pour qu'une version
+ * émise avant un redémarrage (ou par une autre instance) ne corresponde jamais.
+ */
+@Component
+public class VersionsCollections {
+    public static final String VEHICULES = "vehicules";
+    public static final String INTERVENTIONS = "interventions";
+    public static final String REFERENCES = "references";
+
+    private final long epoque = System.currentTimeMillis();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public long version(String collection) {
+        return compteur(collection).get();
+    }
+
+    public void incrementer(String collection) {
+        compteur(collection).incrementAndGet();
+    }
+
+    /**
+     * ETag de la version courante : à lire avant les données, pour qu'une écriture concurrente ne soit jamais masquée.
+     */
+    public String etag(String collection) {
+        return etag(collection, version(collection));
+    }
+
+    public String etag(String collection, long version) {
+        return "\"" + collection + "-" + epoque + "-" + version + "\"";
+    }
+
+    @EventListener
+    public void surInvalidation(Invalidation invalidation) {
+        // Véhicules : la version vient de l'état de la flotte ; références : incrémentée par ReferenceCache
+        if (invalidation.entite() == Invalidation.Entite.INTERVENTION) {
+            incrementer(INTERVENTIONS);
+        }
+    }
+
+    private AtomicLong compteur(String collection) {
+        return versions.computeIfAbsent(collection, cle -> new AtomicLong());
+    }
+}
@@ -4,8 +4,8 @@ import fr.cpe.sdmis.config.RabbitConfig.RabbitQueues;
 import fr.cpe.sdmis.messaging.EventMessage;
 import fr.cpe.sdmis.messaging.InterventionMessage;
 import fr.cpe.sdmis.service.SdmisSseService;
+import fr.cpe.sdmis.repository.FlotteEtatStore;
 import fr.cpe.sdmis.repository.InterventionRepository;
-import fr.cpe.sdmis.repository.VehiculeRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
@@ -20,18 +20,18 @@ public class DecisionMessagingService {
     private final RabbitTemplate rabbitTemplate;
     private final RabbitQueues queues;
     private final InterventionRepository interventionRepository;
-    private final VehiculeRepository vehiculeRepository;
+    private final FlotteEtatStore flotte;
     private final SdmisSseService sseService;
 
     public DecisionMessagingService(RabbitTemplate rabbitTemplate,
                                     RabbitQueues queues,
                                     InterventionRepository interventionRepository,
-                                    VehiculeRepository vehiculeRepository,
+                                    FlotteEtatStore flotte,
                                     SdmisSseService sseService) {
         this.rabbitTemplate = rabbitTemplate;
         this.queues = queues;
         this.interventionRepository = interventionRepository;
-        this.vehiculeRepository = vehiculeRepository;
+        this.flotte = flotte;
         this.sseService = sseService;
     }
 
@@ -57,7 +57,7 @@ public class DecisionMessagingService {
         interventionRepository.saveFromMessage(interventionMessage);
         interventionRepository.findSnapshotByIds(interventionMessage.getIdEvenement(), interventionMessage.getVehiculeId())
                 .ifPresent(snapshot -> sseService.broadcast("interventions", List.of(snapshot)));
-        vehiculeRepository.findSnapshotById(interventionMessage.getVehiculeId())
+        flotte.vehicule(interventionMessage.getVehiculeId())
                 .ifPresent(snapshot -> sseService.broadcast("vehicules", List.of(snapshot)));
     }
 }
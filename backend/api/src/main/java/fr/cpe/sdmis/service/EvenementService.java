@@ -5,6 +5,7 @@ import fr.cpe.sdmis.dto.EvenementCreateRequest;
 import fr.cpe.sdmis.dto.EvenementResponse;
 import fr.cpe.sdmis.dto.EvenementSnapshotResponse;
 import fr.cpe.sdmis.dto.EvenementUpdateRequest;
+import fr.cpe.sdmis.dto.PageResponse;
 import fr.cpe.sdmis.mapper.EvenementMapper;
 import fr.cpe.sdmis.messaging.EventMessage;
 import fr.cpe.sdmis.repository.IEvenementRepository;
@@ -13,11 +14,13 @@ import fr.cpe.sdmis.repository.StatutEvenementRepository;
 import fr.cpe.sdmis.repository.StatutInterventionRepository;
 import fr.cpe.sdmis.repository.TypeEvenementRepository;
 import fr.cpe.sdmis.repository.InterventionRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
 import fr.cpe.sdmis.service.SdmisSseService;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class EvenementService {
@@ -51,6 +54,11 @@ public class EvenementService {
         this.sseService = sseService;
     }
 
+    @PostConstruct
+    void enregistrerInstantane() {
+        sseService.enregistrerInstantane("evenements", this::listSnapshots);
+    }
+
     public EvenementResponse createEvenement(EvenementCreateRequest request) {
         UUID idType = typeEvenementRepository.findIdByNom(request.nomTypeEvenement())
                 .orElseThrow(() -> new IllegalArgumentException("Type d'événement introuvable: " + request.nomTypeEvenement()));
@@ -82,6 +90,15 @@ public class EvenementService {
                 .toList();
     }
 
+    public PageResponse<EvenementResponse> listEvenements(String apres, int limite) {
+        PageResponse<Evenement> page = evenementRepository.findPage(apres, limite);
+        return new PageResponse<>(page.elements().stream().map(mapper::toResponse).toList(), page.suivant());
+    }
+
+    public void parcourirEvenements(Consumer<EvenementResponse> consommateur) {
+        evenementRepository.parcourir(evenement -> consommateur.accept(mapper.toResponse(evenement)));
+    }
+
     public List<EvenementSnapshotResponse> listSnapshots() {
         return evenementRepository.findSnapshots();
     }
@@ -4,10 +4,11 @@ import fr.cpe.sdmis.dto.ValidationInterventionRequest;
 import fr.cpe.sdmis.dto.ClotureInterventionRequest;
 import fr.cpe.sdmis.dto.InterventionSnapshotResponse;
 import fr.cpe.sdmis.repository.EvenementRepository;
+import fr.cpe.sdmis.repository.FlotteEtatStore;
 import fr.cpe.sdmis.repository.InterventionRepository;
 import fr.cpe.sdmis.repository.StatutEvenementRepository;
 import fr.cpe.sdmis.repository.StatutInterventionRepository;
-import fr.cpe.sdmis.repository.VehiculeRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.stereotype.Service;
 import fr.cpe.sdmis.service.SdmisSseService;
 
@@ -16,7 +17,6 @@ import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
 import java.util.List;
-import java.util.ArrayList;
 
 @Service
 public class InterventionService {
@@ -25,23 +25,28 @@ public class InterventionService {
     private final StatutInterventionRepository statutInterventionRepository;
     private final StatutEvenementRepository statutEvenementRepository;
     private final EvenementRepository evenementRepository;
-    private final VehiculeRepository vehiculeRepository;
+    private final FlotteEtatStore flotte;
     private final SdmisSseService sseService;
 
     public InterventionService(InterventionRepository interventionRepository,
                                StatutInterventionRepository statutInterventionRepository,
                                StatutEvenementRepository statutEvenementRepository,
                                EvenementRepository evenementRepository,
-                               VehiculeRepository vehiculeRepository,
+                               FlotteEtatStore flotte,
                                SdmisSseService sseService) {
         this.interventionRepository = interventionRepository;
         this.statutInterventionRepository = statutInterventionRepository;
         this.statutEvenementRepository = statutEvenementRepository;
         this.evenementRepository = evenementRepository;
-        this.vehiculeRepository = vehiculeRepository;
+        this.flotte = flotte;
         this.sseService = sseService;
     }
 
+    @PostConstruct
+    void enregistrerInstantane() {
+        sseService.enregistrerInstantane("interventions", interventionRepository::findSnapshots);
+    }
+
     public void validerInterventions(ValidationInterventionRequest request) {
         UUID statutEnCours = statutInterventionRepository.findIdByNomOrThrow("En cours");
         UUID statutAnnule = statutInterventionRepository.findIdByNomOrThrow("Annulée");
@@ -73,13 +78,15 @@ public class InterventionService {
         System.out.println("[VALIDATION] Interventions en attente annulées. Véhicules concernés=" + vehiculesEnAttente);
         
         // Rendre disponibles ces véhicules si aucune autre intervention ne les laisse en "En proposition"
+        Set<UUID> vehiculesLiberes = new HashSet<>();
         for (UUID vehiculeId : vehiculesEnAttente) {
             if (!interventionRepository.vehiculeHasInterventionWithStatut(vehiculeId, "En proposition")) {
                 interventionRepository.updateVehiculeStatutDisponible(vehiculeId);
-                broadcastVehicules(Set.of(vehiculeId));
+                vehiculesLiberes.add(vehiculeId);
                 System.out.println("[VALIDATION] Véhicule " + vehiculeId + " repassé 'Disponible' (pas de proposition active)");
             }
         }
+        broadcastVehicules(vehiculesLiberes);
 
         // Mettre l'évènement en "En intervention"
         statutEvenementRepository.findIdByNom("En intervention")
@@ -116,10 +123,7 @@ public class InterventionService {
     }
 
     private void broadcastSnapshotsFor(UUID idEvenement, Set<UUID> vehicules) {
-        List<InterventionSnapshotResponse> updated = new ArrayList<>();
-        for (UUID vehiculeId : vehicules) {
-            interventionRepository.findSnapshotByIds(idEvenement, vehiculeId).ifPresent(updated::add);
-        }
+        List<InterventionSnapshotResponse> updated = interventionRepository.findSnapshotsByEvenementEtVehicules(idEvenement, vehicules);
         if (!updated.isEmpty()) {
             sseService.broadcast("interventions", updated);
         }
@@ -131,10 +135,7 @@ public class InterventionService {
     }
 
     private void broadcastVehicules(Set<UUID> vehicules) {
-        List<fr.cpe.sdmis.dto.VehiculeSnapshotResponse> updated = new ArrayList<>();
-        for (UUID vehiculeId : vehicules) {
-            vehiculeRepository.findSnapshotById(vehiculeId).ifPresent(updated::add);
-        }
+        List<fr.cpe.sdmis.dto.VehiculeSnapshotResponse> updated = flotte.vehicules(vehicules);
         if (!updated.isEmpty()) {
             sseService.broadcast("vehicules", updated);
         }
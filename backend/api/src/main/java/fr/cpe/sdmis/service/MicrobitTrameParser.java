@@ -0,0 +1,184 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.VehiculeUpdateRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lecture directe des trames micro:bit {@code ID:<plaque>;Geo:<lat>,<lon>;Res:<nom>=<n>[,<nom>=<n>];Time:<ts>;}
+ * depuis le tampon d'octets de la requête, une trame par ligne. Les nombres sont décodés sans passer par des String ;
+ * seules la plaque et les noms de ressources sont matérialisés.
+ */
+@Component
+public class MicrobitTrameParser {
+    private static final double[] PUISSANCES_10 = {
+            1d, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+    private static final long SEUIL_MILLISECONDES = 100_000_000_000L;
+
+    public List<VehiculeUpdateRequest> parser(byte[] tampon, int longueur) {
+        List<VehiculeUpdateRequest> trames = new ArrayList<>();
+        int debut = 0;
+        for (int i = 0; i <= longueur; i++) {
+            if (i == longueur || tampon[i] == '\n') {
+                int fin = i;
+                if (fin > debut && tampon[fin - 1] == '\r') {
+                    fin--;
+                }
+                if (fin > debut) {
+                    trames.add(parserLigne(tampon, debut, fin));
+                }
+                debut = i + 1;
+            }
+        }
+        return trames;
+    }
+
+    // Retourne null si la trame est illisible : le service la signale alors comme invalide
+    VehiculeUpdateRequest parserLigne(byte[] b, int debut, int fin) {
+        String plaque = null;
+        double lat = Double.NaN;
+        double lon = Double.NaN;
+        OffsetDateTime horodatage = null;
+        Map<String, Integer> ressources = null;
+        try {
+            int champ = debut;
+            while (champ < fin) {
+                int finChamp = indexOf(b, (byte) ';', champ, fin);
+                int separateur = indexOf(b, (byte) ':', champ, finChamp);
+                if (separateur < finChamp) {
+                    int valeur = separateur + 1;
+                    if (cle(b, champ, separateur, "ID")) {
+                        plaque = new String(b, valeur, finChamp - valeur, StandardCharsets.US_ASCII);
+                    } else if (cle(b, champ, separateur, "Geo")) {
+                        int virgule = indexOf(b, (byte) ',', valeur, finChamp);
+                        lat = lireDecimal(b, valeur, virgule);
+                        lon = lireDecimal(b, virgule + 1, finChamp);
+                    } else if (cle(b, champ, separateur, "Res")) {
+                        ressources = lireRessources(b, valeur, finChamp, ressources);
+                    } else if (cle(b, champ, separateur, "Time")) {
+                        long ts = lireEntier(b, valeur, finChamp);
+                        Instant instant = ts >= SEUIL_MILLISECONDES ? Instant.ofEpochMilli(ts) : Instant.ofEpochSecond(ts);
+                        horodatage = instant.atOffset(ZoneOffset.UTC);
+                    }
+                }
+                champ = finChamp + 1;
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (plaque == null || Double.isNaN(lat) || Double.isNaN(lon)) {
+            return null;
+        }
+        return new VehiculeUpdateRequest(plaque, lat, lon, horodatage, ressources, null);
+    }
+
+    private static Map<String, Integer> lireRessources(byte[] b, int debut, int fin, Map<String, Integer> ressources) {
+        Map<String, Integer> resultat = ressources != null ? ressources : new HashMap<>(4);
+        int element = debut;
+        while (element < fin) {
+            int finElement = indexOf(b, (byte) ',', element, fin);
+            int egal = indexOf(b, (byte) '=', element, finElement);
+            if (egal == finElement || egal == element) {
+                throw new IllegalArgumentException("Ressource sans valeur");
+            }
+            long contenance = lireEntier(b, egal + 1, finElement);
+            if (contenance > Integer.MAX_VALUE || contenance < Integer.MIN_VALUE) {
+                throw new IllegalArgumentException("Contenance hors limites");
+            }
+            resultat.put(new String(b, element, egal - element, StandardCharsets.UTF_8), (int) contenance);
+            element = finElement + 1;
+        }
+        return resultat;
+    }
+
+    private static double lireDecimal(byte[] b, int debut, int fin) {
+        int i = debut;
+        boolean negatif = false;
+        if (i < fin && (b[i] == '-' || b[i] == '+')) {
+            negatif = b[i] == '-';
+            i++;
+        }
+        long mantisse = 0;
+        int chiffres = 0;
+        int decimales = 0;
+        boolean point = false;
+        for (; i < fin; i++) {
+            byte c = b[i];
+            if (c == '.' && !point) {
+                point = true;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Décimal invalide");
+            }
+            if (chiffres == 18) {
+                if (!point) {
+                    throw new IllegalArgumentException("Décimal trop long");
+                }
+                // Précision au-delà du double : chiffres suivants ignorés
+                continue;
+            }
+            mantisse = mantisse * 10 + (c - '0');
+            chiffres++;
+            if (point) {
+                decimales++;
+            }
+        }
+        if (chiffres == 0) {
+            throw new IllegalArgumentException("Décimal vide");
+        }
+        double valeur = mantisse / PUISSANCES_10[decimales];
+        return negatif ? -valeur : valeur;
+    }
+
+    private static long lireEntier(byte[] b, int debut, int fin) {
+        int i = debut;
+        boolean negatif = false;
+        if (i < fin && b[i] == '-') {
+            negatif = true;
+            i++;
+        }
+        if (i == fin || fin - i > 18) {
+            throw new IllegalArgumentException("Entier invalide");
+        }
+        long valeur = 0;
+        for (; i < fin; i++) {
+            byte c = b[i];
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Entier invalide");
+            }
+            valeur = valeur * 10 + (c - '0');
+        }
+        return negatif ? -valeur : valeur;
+    }
+
+    private static boolean cle(byte[] b, int debut, int fin, String attendue) {
+        if (fin - debut != attendue.length()) {
+            return false;
+        }
+        for (int i = 0; i < attendue.length(); i++) {
+            if (b[debut + i] != attendue.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, byte cible, int debut, int fin) {
+        for (int i = debut; i < fin; i++) {
+            if (b[i] == cible) {
+                return i;
+            }
+        }
+        return fin;
+    }
+}
@@ -0,0 +1,93 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.repository.PositionHistoriqueRepository;
+import fr.cpe.sdmis.repository.PositionHistoriqueRepository.PointPosition;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Alimente l'historique des positions par micro-lots COPY, hors du thread d'ingestion.
+ * La file est bornée : si la base ne suit pas, les points excédentaires sont perdus plutôt que de ralentir l'API.
+ */
+@Component
+public class PositionHistoriqueWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PositionHistoriqueWriter.class);
+
+    private final PositionHistoriqueRepository historiqueRepository;
+    private final BlockingQueue<PointPosition> file;
+    private final int tailleLot;
+    private final long intervalleMs;
+    private final LongAdder ecrits = new LongAdder();
+    private final LongAdder perdus = new LongAdder();
+    private final ScheduledExecutorService ecrivain = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "position-historique-copy");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PositionHistoriqueWriter(PositionHistoriqueRepository historiqueRepository,
+                                    @Value("${sdmis.historique.file-capacite:100000}") int capacite,
+                                    @Value("${sdmis.historique.lot-taille:5000}") int tailleLot,
+                                    @Value("${sdmis.historique.intervalle-ms:500}") long intervalleMs) {
+        this.historiqueRepository = historiqueRepository;
+        this.file = new ArrayBlockingQueue<>(capacite);
+        this.tailleLot = tailleLot;
+        this.intervalleMs = intervalleMs;
+    }
+
+    @PostConstruct
+    void demarrer() {
+        ecrivain.scheduleWithFixedDelay(this::vider, intervalleMs, intervalleMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void arreter() throws InterruptedException {
+        ecrivain.shutdown();
+        ecrivain.awaitTermination(10, TimeUnit.SECONDS);
+        vider();
+    }
+
+    public void ajouter(UUID idVehicule, Instant horodatage, double latitude, double longitude) {
+        if (!file.offer(new PointPosition(idVehicule, horodatage, latitude, longitude))) {
+            perdus.increment();
+        }
+    }
+
+    public Map<String, Long> statistiques() {
+        return Map.of(
+                "historiquePointsEcrits", ecrits.sum(),
+                "historiquePointsPerdus", perdus.sum(),
+                "historiquePointsEnAttente", (long) file.size()
+        );
+    }
+
+    private synchronized void vider() {
+        List<PointPosition> lot = new ArrayList<>(tailleLot);
+        while (file.drainTo(lot, tailleLot) > 0) {
+            try {
+                ecrits.add(historiqueRepository.copier(lot));
+            } catch (RuntimeException e) {
+                perdus.add(lot.size());
+                LOGGER.error("Echec COPY de {} points d'historique : {}", lot.size(), e.getMessage());
+                return;
+            }
+            lot.clear();
+        }
+    }
+}
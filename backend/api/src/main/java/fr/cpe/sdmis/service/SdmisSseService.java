@@ -1,34 +1,576 @@
 package fr.cpe.sdmis.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.cpe.sdmis.dto.SseAbonneResponse;
+import fr.cpe.sdmis.service.SseAbonne.PolitiqueDebordement;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
+/**
+ * Diffusion SSE asynchrone : {@link #broadcast} ne fait que déposer l'évènement dans une file centrale.
+ * Un répartiteur le route (cf. {@link SseRoutage}) pour chaque classe d'abonnés, encode une seule fois chaque
+ * contenu distinct en trame SSE, puis recopie la trame dans la file bornée de chaque destinataire,
+ * vidée par un petit pool d'expéditeurs. Les positions véhicules sont cadencées par classe ({@link SseLimiteur}).
+ * Chaque publication porte un identifiant {@code <époque>-<séquence>} et reste dans un journal circulaire :
+ * une reconnexion avec {@code Last-Event-ID} rejoue les publications manquées (fusionnées par entité),
+ * ou reçoit un instantané complet si l'écart n'est plus couvert par le journal.
+ * Un abonné en mode delta ({@link SseDelta}) reçoit les positions sous forme de champs modifiés.
+ * Avec plusieurs instances, {@link SseClusterBus} relaie chaque publication aux abonnés des autres instances.
+ * Le répartiteur veille aussi sur les connexions : un commentaire de battement part vers tout abonné resté
+ * silencieux {@code battement-ms} (une connexion à moitié fermée finit ainsi par échouer en écriture),
+ * et un abonné dont la file n'avance plus depuis {@code blocage-max-ms} est retiré. Une écriture bloquée plus de
+ * {@code ecriture-max-ms} est interrompue : quelques clients lents ne peuvent pas immobiliser tout le pool d'expéditeurs.
+ */
 @Component
 public class SdmisSseService {
-    private final CopyOnWriteArrayList<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private static final Logger LOGGER = LoggerFactory.getLogger(SdmisSseService.class);
+
+    private static final Set<String> TYPES = Set.of("vehicules", "evenements", "interventions");
+    private static final byte[] FIN_TRAME = "\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BATTEMENT = ":battement\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final long VEILLE_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ObjectMapper objectMapper;
+    private final CopyOnWriteArrayList<SseAbonne> abonnes = new CopyOnWriteArrayList<>();
+    private final Map<UUID, SseAbonne> parId = new ConcurrentHashMap<>();
+    private final Map<SseClasse, SseRoutage> routages = new EnumMap<>(SseClasse.class);
+    private final Map<SseClasse, SseLimiteur> limiteurs = new EnumMap<>(SseClasse.class);
+    private final BlockingQueue<Tache> publications = new LinkedBlockingQueue<>();
+    private final Map<String, Supplier<? extends Collection<?>>> instantanes = new ConcurrentHashMap<>();
+    private final long epoque = System.currentTimeMillis();
+    private final SseJournal journal;
+    private final int capaciteFile;
+    private final PolitiqueDebordement politique;
+    private final long cadenceTickMs;
+    private final long imageCompleteNs;
+    private final long battementNs;
+    private final long blocageMaxNs;
+    private final long ecritureMaxNs;
+    private final ExecutorService expediteurs;
+    private final ExecutorService fermetures;
+    private final LongAdder debordements = new LongAdder();
+    private final LongAdder deconnexions = new LongAdder();
+    private final LongAdder encodages = new LongAdder();
+    private final LongAdder octetsEncodes = new LongAdder();
+    private final LongAdder rejeux = new LongAdder();
+    private final LongAdder instantanesEnvoyes = new LongAdder();
+    private final LongAdder recuesCluster = new LongAdder();
+    private final LongAdder octetsEnvoyes = new LongAdder();
+    private final LongAdder battements = new LongAdder();
+    private final LongAdder retraitsBlocage = new LongAdder();
+    private final LongAdder ecrituresInterrompues = new LongAdder();
+    private final SseHistogramme latencesEnvoi = new SseHistogramme(1, 5, 25, 100, 500, 2000);
+    private volatile BiConsumer<String, Object> relais;
+    private final Thread repartiteur = new Thread(this::repartir, "sse-repartiteur");
+
+    public SdmisSseService(ObjectMapper objectMapper,
+                           @Value("${sdmis.sse.file-capacite:256}") int capaciteFile,
+                           @Value("${sdmis.sse.debordement:FUSIONNER}") PolitiqueDebordement politique,
+                           @Value("${sdmis.sse.expediteurs:16}") int nbExpediteurs,
+                           @Value("${sdmis.sse.grille.pas-deg:0.05}") double pasGrilleDeg,
+                           @Value("${sdmis.sse.grille.cellules-max:4096}") int cellulesMax,
+                           @Value("${sdmis.sse.cadence.operateur:2}") double cadenceOperateur,
+                           @Value("${sdmis.sse.cadence.terrain:1}") double cadenceTerrain,
+                           @Value("${sdmis.sse.cadence.simulation:0}") double cadenceSimulation,
+                           @Value("${sdmis.sse.cadence.tick-ms:50}") long cadenceTickMs,
+                           @Value("${sdmis.sse.rejeu.capacite:4096}") int capaciteJournal,
+                           @Value("${sdmis.sse.delta.image-complete-ms:30000}") long imageCompleteMs,
+                           @Value("${sdmis.sse.battement-ms:15000}") long battementMs,
+                           @Value("${sdmis.sse.blocage-max-ms:60000}") long blocageMaxMs,
+                           @Value("${sdmis.sse.ecriture-max-ms:5000}") long ecritureMaxMs) {
+        this.objectMapper = objectMapper;
+        this.capaciteFile = capaciteFile;
+        this.politique = politique;
+        this.cadenceTickMs = Math.max(1, cadenceTickMs);
+        this.journal = new SseJournal(capaciteJournal);
+        this.imageCompleteNs = TimeUnit.MILLISECONDS.toNanos(imageCompleteMs);
+        this.battementNs = TimeUnit.MILLISECONDS.toNanos(battementMs);
+        this.blocageMaxNs = TimeUnit.MILLISECONDS.toNanos(blocageMaxMs);
+        this.ecritureMaxNs = TimeUnit.MILLISECONDS.toNanos(ecritureMaxMs);
+        for (SseClasse classe : SseClasse.values()) {
+            routages.put(classe, new SseRoutage(pasGrilleDeg, cellulesMax));
+        }
+        limiteurs.put(SseClasse.OPERATEUR, new SseLimiteur(cadenceOperateur));
+        limiteurs.put(SseClasse.TERRAIN, new SseLimiteur(cadenceTerrain));
+        limiteurs.put(SseClasse.SIMULATION, new SseLimiteur(cadenceSimulation));
+        AtomicInteger compteur = new AtomicInteger();
+        this.expediteurs = Executors.newFixedThreadPool(Math.max(1, nbExpediteurs), r -> {
+            Thread thread = new Thread(r, "sse-expediteur-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Fermer un emitter attend la fin de l'écriture en cours : jamais sur un fil expéditeur
+        this.fermetures = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "sse-fermeture-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        repartiteur.setDaemon(true);
+    }
+
+    @PostConstruct
+    void demarrer() {
+        repartiteur.start();
+    }
+
+    @PreDestroy
+    void arreter() throws InterruptedException {
+        repartiteur.interrupt();
+        expediteurs.shutdown();
+        fermetures.shutdown();
+        expediteurs.awaitTermination(5, TimeUnit.SECONDS);
+    }
 
     public SseEmitter subscribe() {
+        return subscribe(null, List.of(), List.of(), List.of(), List.of(), null, false, null);
+    }
+
+    public SseEmitter subscribe(String proprietaire, Collection<String> roles, Collection<String> types, Collection<UUID> vehicules,
+                                Collection<UUID> evenements, List<Double> bbox, boolean delta, String dernierId) {
+        for (String type : types) {
+            if (!TYPES.contains(type)) {
+                throw new IllegalArgumentException("Type d'évènement SSE inconnu : " + type);
+            }
+        }
+        SseFiltre filtre = new SseFiltre(Set.copyOf(types), Set.copyOf(vehicules), Set.copyOf(evenements));
+        SseViewport viewport = null;
+        if (bbox != null && !bbox.isEmpty()) {
+            if (bbox.size() != 4 || filtre.cible()) {
+                throw new IllegalArgumentException("bbox attendu : latMin,lonMin,latMax,lonMax (abonnement non ciblé)");
+            }
+            viewport = new SseViewport(bbox.get(0), bbox.get(1), bbox.get(2), bbox.get(3));
+        }
         SseEmitter emitter = new SseEmitter(0L);
-        emitters.add(emitter);
-        emitter.onCompletion(() -> emitters.remove(emitter));
-        emitter.onTimeout(() -> emitters.remove(emitter));
+        SseAbonne abonne = new SseAbonne(emitter, filtre, SseClasse.depuisRoles(roles), capaciteFile,
+                delta ? new SseDelta(imageCompleteNs) : null, proprietaire);
+        abonne.viewport(viewport);
+        abonnes.add(abonne);
+        parId.put(abonne.id(), abonne);
+        // Identifiant transmis au client pour qu'il puisse déplacer son viewport
+        Map<String, UUID> abonnement = Map.of("id", abonne.id());
+        deposer(abonne, null, "abonnement", abonnement, encoder(null, "abonnement", abonnement));
+        long reprise = -1;
+        if (dernierId != null && !dernierId.isBlank()) {
+            long sequence = sequence(dernierId);
+            if (sequence >= 0 && journal.couvre(sequence)) {
+                reprise = sequence;
+            } else {
+                // Ecart trop ancien (ou autre instance) : état complet, puis rejeu de ce qui arrive entre-temps
+                reprise = journal.dernier();
+                envoyerInstantanes(abonne, reprise);
+            }
+        }
+        // L'indexation passe par le répartiteur pour que le rejeu précède toute nouvelle publication
+        publications.offer(new Inscription(abonne, reprise));
+        emitter.onCompletion(() -> retirer(abonne));
+        emitter.onTimeout(() -> retirer(abonne));
+        emitter.onError(e -> retirer(abonne));
         return emitter;
     }
 
+    public void majViewport(String demandeur, UUID idAbonne, double latMin, double lonMin, double latMax, double lonMax) {
+        SseAbonne abonne = parId.get(idAbonne);
+        if (abonne == null) {
+            throw new IllegalArgumentException("Abonné SSE introuvable : " + idAbonne);
+        }
+        if (abonne.proprietaire() == null || !abonne.proprietaire().equals(demandeur)) {
+            throw new AccessDeniedException("Abonné SSE appartenant à un autre utilisateur : " + idAbonne);
+        }
+        if (abonne.filtre().cible()) {
+            throw new IllegalArgumentException("Viewport réservé aux abonnements non ciblés");
+        }
+        routages.get(abonne.classe()).deplacer(abonne, new SseViewport(latMin, lonMin, latMax, lonMax));
+    }
+
+    /**
+     * Source de l'état complet d'un type, envoyé à un client qui se reconnecte après un écart trop ancien.
+     */
+    public void enregistrerInstantane(String type, Supplier<? extends Collection<?>> source) {
+        instantanes.put(type, source);
+    }
+
     public void broadcast(String eventName, Object payload) {
-        for (SseEmitter emitter : emitters) {
+        publications.offer(new Publication(eventName, payload));
+        BiConsumer<String, Object> relais = this.relais;
+        if (relais != null) {
+            relais.accept(eventName, payload);
+        }
+    }
+
+    /**
+     * Publication reçue d'une autre instance : diffusée aux seuls abonnés de cette instance, sans être relayée.
+     */
+    public void broadcastLocal(String eventName, Object payload) {
+        publications.offer(new Publication(eventName, payload));
+        recuesCluster.increment();
+    }
+
+    void relayer(BiConsumer<String, Object> relais) {
+        this.relais = relais;
+    }
+
+    public Map<String, Long> statistiques() {
+        long enAttente = 0;
+        long fileMax = 0;
+        Map<SseClasse, Long> parClasse = new EnumMap<>(SseClasse.class);
+        for (SseClasse classe : SseClasse.values()) {
+            parClasse.put(classe, 0L);
+        }
+        for (SseAbonne abonne : abonnes) {
+            int file = abonne.enAttente();
+            enAttente += file;
+            fileMax = Math.max(fileMax, file);
+            parClasse.merge(abonne.classe(), 1L, Long::sum);
+        }
+        Map<String, Long> statistiques = new LinkedHashMap<>();
+        statistiques.put("sseAbonnes", (long) abonnes.size());
+        parClasse.forEach((classe, nombre) -> statistiques.put("sseAbonnes" + classe.name().charAt(0)
+                + classe.name().substring(1).toLowerCase(), nombre));
+        statistiques.put("sseAbonnesCibles", abonnes.stream().filter(abonne -> abonne.filtre().cible()).count());
+        statistiques.put("sseAbonnesViewport", abonnes.stream().filter(abonne -> abonne.viewport() != null).count());
+        statistiques.put("sseAbonnesDelta", abonnes.stream().filter(abonne -> abonne.delta() != null).count());
+        statistiques.put("ssePublicationsEnAttente", (long) publications.size());
+        statistiques.put("sseEvenementsEnAttente", enAttente);
+        statistiques.put("sseFileMax", fileMax);
+        statistiques.put("sseDebordements", debordements.sum());
+        statistiques.put("sseDeconnexionsDebordement", deconnexions.sum());
+        statistiques.put("sseEncodages", encodages.sum());
+        statistiques.put("sseOctetsEncodes", octetsEncodes.sum());
+        statistiques.put("sseRejeux", rejeux.sum());
+        statistiques.put("sseInstantanes", instantanesEnvoyes.sum());
+        statistiques.put("sseJournalSequence", journal.dernier());
+        statistiques.put("sseRecuesCluster", recuesCluster.sum());
+        statistiques.put("sseOctetsEnvoyes", octetsEnvoyes.sum());
+        statistiques.put("sseBattements", battements.sum());
+        statistiques.put("sseRetraitsBlocage", retraitsBlocage.sum());
+        statistiques.put("sseEcrituresInterrompues", ecrituresInterrompues.sum());
+        latencesEnvoi.exporter("sseLatenceEnvoi", statistiques);
+        return statistiques;
+    }
+
+    /**
+     * Etat de chaque connexion SSE de cette instance : file en attente, volume envoyé, silence et blocage.
+     */
+    public List<SseAbonneResponse> abonnes() {
+        long maintenant = System.nanoTime();
+        List<SseAbonneResponse> etats = new ArrayList<>(abonnes.size());
+        for (SseAbonne abonne : abonnes) {
+            etats.add(new SseAbonneResponse(
+                    abonne.id(),
+                    abonne.classe().name(),
+                    abonne.filtre().cible(),
+                    abonne.delta() != null,
+                    abonne.enAttente(),
+                    abonne.octetsEnvoyes(),
+                    TimeUnit.NANOSECONDS.toMillis(abonne.inactiviteNs(maintenant)),
+                    TimeUnit.NANOSECONDS.toMillis(abonne.blocageNs(maintenant))));
+        }
+        return etats;
+    }
+
+    private void repartir() {
+        long prochainTick = System.nanoTime();
+        long prochaineVeille = prochainTick + VEILLE_NS;
+        while (!Thread.currentThread().isInterrupted()) {
+            Tache tache;
+            try {
+                tache = publications.poll(cadenceTickMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long maintenant = System.nanoTime();
+            try {
+                if (tache instanceof Publication publication) {
+                    router(publication, maintenant);
+                } else if (tache instanceof Inscription inscription) {
+                    inscrire(inscription);
+                }
+                if (maintenant - prochainTick >= 0) {
+                    prochainTick = maintenant + TimeUnit.MILLISECONDS.toNanos(cadenceTickMs);
+                    libererPositions(maintenant);
+                }
+                if (maintenant - prochaineVeille >= 0) {
+                    prochaineVeille = maintenant + VEILLE_NS;
+                    veiller(maintenant);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Evènement SSE non diffusé ({}) : {}", tache != null ? tache : "cadence", e.getMessage());
+            }
+        }
+    }
+
+    private void router(Publication publication, long maintenant) {
+        String id = epoque + "-" + journal.ajouter(publication.nom(), publication.payload());
+        // Un même contenu routé vers plusieurs classes n'est encodé qu'une fois
+        Map<Object, byte[]> trames = new IdentityHashMap<>();
+        SseRoutage.Envoi envoi = (nom, payload, destinataires) -> distribuer(id, nom, payload, destinataires, trames, maintenant);
+        for (Map.Entry<SseClasse, SseRoutage> entry : routages.entrySet()) {
+            SseRoutage routage = entry.getValue();
+            if (routage.vide()) {
+                continue;
+            }
+            Object payload = publication.payload();
+            SseLimiteur limiteur = limiteurs.get(entry.getKey());
+            if (SseRoutage.VEHICULES.equals(publication.nom()) && limiteur.actif() && payload instanceof Collection<?> elements) {
+                List<Object> admis = limiteur.admettre(elements, maintenant);
+                if (admis.isEmpty()) {
+                    continue;
+                }
+                payload = admis.size() == elements.size() ? payload : admis;
+            }
+            routage.router(publication.nom(), payload, envoi);
+        }
+    }
+
+    private void libererPositions(long maintenant) {
+        for (Map.Entry<SseClasse, SseLimiteur> entry : limiteurs.entrySet()) {
+            if (!entry.getValue().actif()) {
+                continue;
+            }
+            List<Object> echus = entry.getValue().echus(maintenant);
+            SseRoutage routage = routages.get(entry.getKey());
+            if (!echus.isEmpty() && !routage.vide()) {
+                // Sans identifiant : ces positions sont déjà couvertes par la séquence de leur publication d'origine
+                Map<Object, byte[]> trames = new IdentityHashMap<>();
+                routage.router(SseRoutage.VEHICULES, echus,
+                        (nom, payload, destinataires) -> distribuer(null, nom, payload, destinataires, trames, maintenant));
+            }
+        }
+    }
+
+    private void distribuer(String id, String nom, Object payload, Collection<SseAbonne> destinataires,
+                            Map<Object, byte[]> trames, long maintenant) {
+        boolean positions = SseRoutage.VEHICULES.equals(nom) && payload instanceof Collection<?>;
+        List<SseAbonne> enDelta = new ArrayList<>();
+        for (SseAbonne abonne : destinataires) {
+            if (positions && abonne.delta() != null) {
+                enDelta.add(abonne);
+            } else {
+                deposer(abonne, id, nom, payload, trames.computeIfAbsent(payload, contenu -> encoder(id, nom, contenu)));
+            }
+        }
+        if (enDelta.isEmpty()) {
+            return;
+        }
+        // Les abonnés delta qui ont reçu les mêmes états partagent les mêmes trames
+        Map<List<Object>, List<SseAbonne>> completes = new LinkedHashMap<>();
+        Map<List<Object>, List<SseAbonne>> deltas = new LinkedHashMap<>();
+        for (SseAbonne abonne : enDelta) {
+            SseDelta.Decoupage decoupage = abonne.delta().decouper((Collection<?>) payload, maintenant);
+            if (!decoupage.completes().isEmpty()) {
+                completes.computeIfAbsent(decoupage.completes(), cle -> new ArrayList<>()).add(abonne);
+            }
+            if (!decoupage.deltas().isEmpty()) {
+                deltas.computeIfAbsent(decoupage.deltas(), cle -> new ArrayList<>()).add(abonne);
+            }
+        }
+        completes.forEach((contenu, abonnes) -> deposerTous(abonnes, id, nom, contenu));
+        deltas.forEach((contenu, abonnes) -> deposerTous(abonnes, id, SseDelta.EVENEMENT, contenu));
+    }
+
+    private void veiller(long maintenant) {
+        for (SseAbonne abonne : abonnes) {
+            if (ecritureMaxNs > 0 && abonne.ecritureNs(maintenant) > ecritureMaxNs) {
+                ecrituresInterrompues.increment();
+                LOGGER.warn("Abonné SSE {} retiré : écriture bloquée depuis {} ms",
+                        abonne.id(), TimeUnit.NANOSECONDS.toMillis(abonne.ecritureNs(maintenant)));
+                deconnecter(abonne);
+                continue;
+            }
+            if (blocageMaxNs > 0 && abonne.blocageNs(maintenant) > blocageMaxNs) {
+                retraitsBlocage.increment();
+                LOGGER.warn("Abonné SSE {} retiré : aucune écriture depuis {} ms ({} évènements en attente)",
+                        abonne.id(), TimeUnit.NANOSECONDS.toMillis(abonne.blocageNs(maintenant)), abonne.enAttente());
+                deconnecter(abonne);
+                continue;
+            }
+            if (battementNs > 0 && abonne.inactiviteNs(maintenant) >= battementNs) {
+                switch (abonne.battre(BATTEMENT)) {
+                    case PLANIFIER -> {
+                        battements.increment();
+                        expediteurs.execute(() -> expedier(abonne));
+                    }
+                    case DECONNECTE -> deconnecter(abonne);
+                    default -> { }
+                }
+            }
+        }
+    }
+
+    private void deposerTous(List<SseAbonne> destinataires, String id, String nom, Object payload) {
+        byte[] trame = encoder(id, nom, payload);
+        for (SseAbonne abonne : destinataires) {
+            deposer(abonne, id, nom, payload, trame);
+        }
+    }
+
+    private void inscrire(Inscription inscription) {
+        SseAbonne abonne = inscription.abonne();
+        if (inscription.reprise() >= 0) {
+            rejouer(abonne, inscription.reprise());
+        }
+        routages.get(abonne.classe()).indexer(abonne);
+    }
+
+    private void rejouer(SseAbonne abonne, long reprise) {
+        if (!journal.couvre(reprise)) {
+            LOGGER.warn("Rejeu SSE incomplet : séquence {} sortie du journal pendant la reconnexion", reprise);
+        }
+        // Dernière valeur par entité, dans l'ordre de première apparition de chaque type
+        Map<String, Map<Object, Object>> parType = new LinkedHashMap<>();
+        for (SseJournal.Entree entree : journal.depuis(reprise)) {
+            Map<Object, Object> elements = parType.computeIfAbsent(entree.nom(), nom -> new LinkedHashMap<>());
+            if (!(entree.payload() instanceof Collection<?> collection)) {
+                elements.put(entree.nom(), entree.payload());
+                continue;
+            }
+            for (Object element : collection) {
+                Object cle = SseAbonne.cle(element);
+                Object unique = cle != null ? cle : new Object();
+                elements.remove(unique);
+                elements.put(unique, element);
+            }
+        }
+        if (parType.isEmpty()) {
+            return;
+        }
+        String id = epoque + "-" + journal.dernier();
+        parType.forEach((nom, elements) -> {
+            Object payload = elements.containsKey(nom) && elements.size() == 1
+                    ? elements.get(nom)
+                    : new ArrayList<>(elements.values());
+            Object selection = SseRoutage.selection(abonne, nom, payload);
+            if (selection != null) {
+                deposer(abonne, id, nom, selection, encoder(id, nom, selection));
+            }
+        });
+        rejeux.increment();
+    }
+
+    private void envoyerInstantanes(SseAbonne abonne, long sequence) {
+        String id = epoque + "-" + sequence;
+        instantanes.forEach((nom, source) -> {
+            if (!abonne.filtre().accepte(nom)) {
+                return;
+            }
             try {
-                emitter.send(SseEmitter.event()
-                        .name(eventName)
-                        .data(payload));
-            } catch (IOException e) {
-                emitters.remove(emitter);
-                emitter.complete();
+                Object selection = SseRoutage.selection(abonne, nom, source.get());
+                if (selection != null) {
+                    deposer(abonne, id, nom, selection, encoder(id, nom, selection));
+                }
+            } catch (RuntimeException e) {
+                LOGGER.warn("Instantané SSE '{}' indisponible : {}", nom, e.getMessage());
             }
+        });
+        instantanesEnvoyes.increment();
+    }
+
+    // Séquence d'un Last-Event-ID de cette instance, -1 s'il est illisible ou émis par une autre époque
+    private long sequence(String dernierId) {
+        int tiret = dernierId.indexOf('-');
+        if (tiret <= 0) {
+            return -1;
+        }
+        try {
+            if (Long.parseLong(dernierId.substring(0, tiret).trim()) != epoque) {
+                return -1;
+            }
+            return Long.parseLong(dernierId.substring(tiret + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void deposer(SseAbonne abonne, String id, String nom, Object payload, byte[] trame) {
+        switch (abonne.deposer(id, nom, payload, trame, politique)) {
+            case PLANIFIER -> expediteurs.execute(() -> expedier(abonne));
+            case DEBORDE -> debordements.increment();
+            case DECONNECTE -> {
+                deconnexions.increment();
+                LOGGER.warn("Abonné SSE déconnecté : file pleine ({} évènements)", capaciteFile);
+                deconnecter(abonne);
+            }
+            case DEPOSE -> { }
+        }
+    }
+
+    private void expedier(SseAbonne abonne) {
+        try {
+            abonne.vider(this::encoder, (octets, dureeNs) -> {
+                octetsEnvoyes.add(octets);
+                latencesEnvoi.enregistrer(dureeNs);
+            });
+        } catch (IOException e) {
+            deconnecter(abonne);
         }
     }
+
+    // Trame complète "[id:<id>\n]event:<nom>\ndata:<json>\n\n" : Jackson n'émet pas de saut de ligne en sortie compacte
+    private byte[] encoder(String id, String nom, Object payload) {
+        try {
+            ByteArrayOutputStream sortie = new ByteArrayOutputStream(256);
+            String entete = (id != null ? "id:" + id + "\n" : "") + "event:" + nom + "\ndata:";
+            sortie.writeBytes(entete.getBytes(StandardCharsets.UTF_8));
+            objectMapper.writeValue(sortie, payload);
+            sortie.writeBytes(FIN_TRAME);
+            encodages.increment();
+            octetsEncodes.add(sortie.size());
+            return sortie.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Encodage JSON impossible : " + e.getMessage(), e);
+        }
+    }
+
+    // Fermeture jamais sur le répartiteur ni sur un fil expéditeur : complete() attend le verrou d'une écriture
+    // éventuellement bloquée, dont l'expéditeur est interrompu
+    private void deconnecter(SseAbonne abonne) {
+        retirer(abonne);
+        abonne.interrompre();
+        fermetures.execute(() -> abonne.emitter().complete());
+    }
+
+    private void retirer(SseAbonne abonne) {
+        abonne.fermer();
+        if (abonnes.remove(abonne)) {
+            parId.remove(abonne.id());
+            routages.get(abonne.classe()).desindexer(abonne);
+        }
+    }
+
+    private sealed interface Tache permits Publication, Inscription { }
+
+    private record Publication(String nom, Object payload) implements Tache { }
+
+    private record Inscription(SseAbonne abonne, long reprise) implements Tache { }
 }
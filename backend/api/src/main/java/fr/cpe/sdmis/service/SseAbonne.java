@@ -0,0 +1,366 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.EvenementSnapshotResponse;
+import fr.cpe.sdmis.dto.InterventionSnapshotResponse;
+import fr.cpe.sdmis.dto.VehiculeSnapshotResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Abonné SSE : file sortante bornée propre à chaque navigateur, vidée par un seul expéditeur à la fois.
+ * Un client lent ne remplit que sa propre file ; la politique de débordement décide de ce qui est sacrifié.
+ * Les trames sont partagées, déjà encodées, entre tous les abonnés : seule une fusion impose un réencodage.
+ * L'abonné mémorise sa dernière écriture réussie (battements), depuis quand sa file n'avance plus (blocage)
+ * et depuis quand l'écriture en cours dure : un expéditeur coincé sur un socket peut ainsi être interrompu.
+ */
+final class SseAbonne {
+
+    enum PolitiqueDebordement { SUPPRIMER_ANCIEN, FUSIONNER, DECONNECTER }
+
+    enum Depot { DEPOSE, PLANIFIER, DEBORDE, DECONNECTE }
+
+    @FunctionalInterface
+    interface Encodeur {
+        byte[] encoder(String id, String nom, Object payload);
+    }
+
+    @FunctionalInterface
+    interface Mesure {
+        void envoye(int octets, long dureeNs);
+    }
+
+    private final UUID id = UUID.randomUUID();
+    private final SseEmitter emitter;
+    private final SseFiltre filtre;
+    private final SseClasse classe;
+    private final SseDelta delta;
+    private final String proprietaire;
+    private final int capacite;
+    private final ArrayDeque<Sortant> file;
+    private boolean planifie;
+    private volatile boolean ferme;
+    private volatile SseViewport viewport;
+    // Ecrits par l'expéditeur en cours (un seul à la fois), lus par la veille du répartiteur
+    private volatile long derniereEcritureNs = System.nanoTime();
+    private volatile long progresNs = derniereEcritureNs;
+    private volatile boolean envoiEnCours;
+    private volatile long envoiDebutNs;
+    private Thread expediteur;
+    private volatile long octetsEnvoyes;
+
+    SseAbonne(SseEmitter emitter, SseFiltre filtre, SseClasse classe, int capacite, SseDelta delta, String proprietaire) {
+        this.emitter = emitter;
+        this.proprietaire = proprietaire;
+        this.filtre = filtre;
+        this.classe = classe;
+        this.delta = delta;
+        this.capacite = Math.max(1, capacite);
+        this.file = new ArrayDeque<>(Math.min(this.capacite, 64));
+    }
+
+    UUID id() {
+        return id;
+    }
+
+    // Principal qui a ouvert la connexion, seul autorisé à la piloter ; null pour un abonnement interne
+    String proprietaire() {
+        return proprietaire;
+    }
+
+    SseViewport viewport() {
+        return viewport;
+    }
+
+    void viewport(SseViewport viewport) {
+        this.viewport = viewport;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    SseClasse classe() {
+        return classe;
+    }
+
+    // Null si l'abonné reçoit les véhicules en images complètes
+    SseDelta delta() {
+        return delta;
+    }
+
+    SseFiltre filtre() {
+        return filtre;
+    }
+
+    boolean ferme() {
+        return ferme;
+    }
+
+    int enAttente() {
+        synchronized (file) {
+            return file.size();
+        }
+    }
+
+    long octetsEnvoyes() {
+        return octetsEnvoyes;
+    }
+
+    long inactiviteNs(long maintenantNs) {
+        return maintenantNs - derniereEcritureNs;
+    }
+
+    /**
+     * Durée depuis laquelle des évènements attendent sans qu'aucune écriture n'aboutisse, 0 si rien n'attend.
+     */
+    long blocageNs(long maintenantNs) {
+        synchronized (file) {
+            if (!envoiEnCours && file.isEmpty()) {
+                return 0L;
+            }
+        }
+        return Math.max(0L, maintenantNs - progresNs);
+    }
+
+    /**
+     * Durée de l'écriture en cours sur le socket, 0 si aucune écriture n'est en cours.
+     */
+    long ecritureNs(long maintenantNs) {
+        return envoiEnCours ? Math.max(0L, maintenantNs - envoiDebutNs) : 0L;
+    }
+
+    /**
+     * Ferme l'abonné et interrompt l'expéditeur bloqué dans une écriture, pour rendre son fil au pool.
+     */
+    void interrompre() {
+        synchronized (file) {
+            ferme = true;
+            file.clear();
+            if (expediteur != null) {
+                expediteur.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Dépose une trame de battement (commentaire SSE) seulement si rien n'attend déjà dans la file.
+     */
+    Depot battre(byte[] trame) {
+        synchronized (file) {
+            if (ferme) {
+                return Depot.DECONNECTE;
+            }
+            if (!file.isEmpty() || envoiEnCours) {
+                return Depot.DEPOSE;
+            }
+            progresNs = System.nanoTime();
+            file.addLast(new Sortant(null, "", null, trame));
+            if (!planifie) {
+                planifie = true;
+                return Depot.PLANIFIER;
+            }
+            return Depot.DEPOSE;
+        }
+    }
+
+    /**
+     * Ajoute un évènement en file ; retourne {@link Depot#PLANIFIER} si l'expéditeur doit être relancé.
+     */
+    Depot deposer(String id, String nom, Object payload, byte[] trame, PolitiqueDebordement politique) {
+        synchronized (file) {
+            if (ferme) {
+                return Depot.DECONNECTE;
+            }
+            Depot depot = Depot.DEPOSE;
+            if (file.size() >= capacite) {
+                switch (politique) {
+                    case DECONNECTER -> {
+                        ferme = true;
+                        file.clear();
+                        return Depot.DECONNECTE;
+                    }
+                    case FUSIONNER -> {
+                        if (fusionner(id, nom, payload)) {
+                            return Depot.DEBORDE;
+                        }
+                        file.pollFirst();
+                    }
+                    case SUPPRIMER_ANCIEN -> file.pollFirst();
+                }
+                depot = Depot.DEBORDE;
+            }
+            if (file.isEmpty() && !envoiEnCours) {
+                progresNs = System.nanoTime();
+            }
+            file.addLast(new Sortant(id, nom, payload, trame));
+            if (!planifie) {
+                planifie = true;
+                return Depot.PLANIFIER;
+            }
+            return depot;
+        }
+    }
+
+    /**
+     * Envoie les évènements en attente jusqu'à épuisement de la file ou erreur d'écriture.
+     */
+    void vider(Encodeur encodeur, Mesure mesure) throws IOException {
+        while (true) {
+            Sortant sortant;
+            synchronized (file) {
+                sortant = ferme ? null : file.pollFirst();
+                if (sortant == null) {
+                    planifie = false;
+                    return;
+                }
+                envoiDebutNs = System.nanoTime();
+                envoiEnCours = true;
+                expediteur = Thread.currentThread();
+            }
+            try {
+                byte[] trame = sortant.trame() != null ? sortant.trame() : encodeur.encoder(sortant.id(), sortant.nom(), sortant.payload());
+                long debut = System.nanoTime();
+                emitter.send(Set.of(new DataWithMediaType(trame, MediaType.TEXT_EVENT_STREAM)));
+                long fin = System.nanoTime();
+                derniereEcritureNs = fin;
+                progresNs = fin;
+                octetsEnvoyes += trame.length;
+                mesure.envoye(trame.length, fin - debut);
+            } catch (IOException | IllegalStateException e) {
+                fermer();
+                throw e instanceof IOException io ? io : new IOException(e);
+            } finally {
+                synchronized (file) {
+                    envoiEnCours = false;
+                    expediteur = null;
+                    // Une interruption arrivée après la fin de l'écriture ne doit pas toucher l'abonné suivant
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    void fermer() {
+        synchronized (file) {
+            ferme = true;
+            file.clear();
+            planifie = false;
+        }
+    }
+
+    // Fusionne dans le dernier évènement de même nom encore en file, élément par élément (dernière valeur gagnante).
+    // Une trame fusionnée qui prend le nouvel identifiant passe en queue : les identifiants restent croissants dans la file
+    // et une reprise par Last-Event-ID ne saute aucun évènement intercalé.
+    private boolean fusionner(String id, String nom, Object payload) {
+        Iterator<Sortant> iterator = file.descendingIterator();
+        while (iterator.hasNext()) {
+            Sortant sortant = iterator.next();
+            if (!sortant.nom().equals(nom)) {
+                continue;
+            }
+            Object fusion = payload;
+            if (sortant.payload() instanceof Collection<?> anciens && payload instanceof Collection<?> nouveaux) {
+                Map<Object, Object> parCle = new LinkedHashMap<>();
+                List<Object> sansCle = new ArrayList<>();
+                for (Object element : anciens) {
+                    indexer(parCle, sansCle, element);
+                }
+                for (Object element : nouveaux) {
+                    indexer(parCle, sansCle, element);
+                }
+                List<Object> elements = new ArrayList<>(parCle.values());
+                elements.addAll(sansCle);
+                fusion = elements;
+            }
+            if (id == null) {
+                sortant.remplacer(fusion);
+            } else {
+                iterator.remove();
+                file.addLast(new Sortant(id, nom, fusion, null));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static void indexer(Map<Object, Object> parCle, List<Object> sansCle, Object element) {
+        Object cle = cle(element);
+        if (cle == null) {
+            sansCle.add(element);
+            return;
+        }
+        Object precedent = parCle.remove(cle);
+        if (precedent instanceof Map<?, ?> champsPrecedents && element instanceof Map<?, ?> champs) {
+            // Deux deltas d'un même véhicule : les champs du plus récent complètent ceux du précédent
+            Map<Object, Object> fusion = new LinkedHashMap<>(champsPrecedents);
+            fusion.putAll(champs);
+            element = fusion;
+        }
+        parCle.put(cle, element);
+    }
+
+    static Object cle(Object element) {
+        if (element instanceof VehiculeSnapshotResponse vehicule) {
+            return vehicule.id();
+        }
+        if (element instanceof EvenementSnapshotResponse evenement) {
+            return evenement.idEvenement();
+        }
+        if (element instanceof InterventionSnapshotResponse intervention) {
+            return Arrays.asList(intervention.idEvenement(), intervention.idVehicule());
+        }
+        if (element instanceof Map<?, ?> delta) {
+            return delta.get("id");
+        }
+        return null;
+    }
+
+    private static final class Sortant {
+        private final String nom;
+        private final String id;
+        private Object payload;
+        private byte[] trame;
+
+        private Sortant(String id, String nom, Object payload, byte[] trame) {
+            this.id = id;
+            this.nom = nom;
+            this.payload = payload;
+            this.trame = trame;
+        }
+
+        String id() {
+            return id;
+        }
+
+        String nom() {
+            return nom;
+        }
+
+        Object payload() {
+            return payload;
+        }
+
+        byte[] trame() {
+            return trame;
+        }
+
+        // Une trame fusionnée sans identifiant garde celui de la trame d'origine, et sa place dans la file
+        void remplacer(Object payload) {
+            this.payload = payload;
+            this.trame = null;
+        }
+    }
+}
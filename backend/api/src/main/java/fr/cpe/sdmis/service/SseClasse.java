@@ -0,0 +1,23 @@
+package fr.cpe.sdmis.service;
+
+import java.util.Collection;
+
+/**
+ * Classe d'abonnés SSE, déduite du rôle : chaque classe a sa propre cadence de positions véhicules.
+ */
+enum SseClasse {
+    OPERATEUR, TERRAIN, SIMULATION;
+
+    static SseClasse depuisRoles(Collection<String> roles) {
+        if (roles.contains("ROLE_API_Admin") || roles.contains("ROLE_API_Operateur")) {
+            return OPERATEUR;
+        }
+        if (roles.contains("ROLE_API_Terrain")) {
+            return TERRAIN;
+        }
+        if (roles.contains("ROLE_API_Simulation")) {
+            return SIMULATION;
+        }
+        return OPERATEUR;
+    }
+}
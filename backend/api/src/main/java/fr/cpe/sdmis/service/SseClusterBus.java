@@ -0,0 +1,167 @@
+package fr.cpe.sdmis.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.cpe.sdmis.dto.EvenementSnapshotResponse;
+import fr.cpe.sdmis.dto.InterventionSnapshotResponse;
+import fr.cpe.sdmis.dto.VehiculeSnapshotResponse;
+import fr.cpe.sdmis.messaging.SseDiffusionMessage;
+import fr.cpe.sdmis.messaging.SsePublicationMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bus de diffusion SSE entre instances de l'API (exchange fanout RabbitMQ) : chaque publication locale est
+ * aussi relayée aux autres instances, qui la diffusent à leurs propres abonnés sans la relayer à nouveau.
+ * Les publications sont regroupées par lot toutes les {@code lot-ms} ; chacune porte un identifiant unique
+ * pour écarter les doublons (nouvelle livraison) et l'identifiant de l'instance émettrice pour ignorer l'écho.
+ */
+@Service
+@ConditionalOnProperty(name = "sdmis.sse.cluster.actif", havingValue = "true")
+public class SseClusterBus {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SseClusterBus.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final SdmisSseService sseService;
+    private final String exchange;
+    private final long lotMs;
+    private final int lotTaille;
+    private final int dedupTaille;
+    private final String noeud = UUID.randomUUID().toString();
+    private final BlockingQueue<SsePublicationMessage> aEmettre;
+    private final Map<UUID, Boolean> recues;
+    private final Map<String, JavaType> types = new LinkedHashMap<>();
+    private final ScheduledExecutorService emetteur = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sse-cluster");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SseClusterBus(RabbitTemplate rabbitTemplate,
+                         ObjectMapper objectMapper,
+                         SdmisSseService sseService,
+                         @Value("${sdmis.sse.cluster.exchange}") String exchange,
+                         @Value("${sdmis.sse.cluster.lot-ms:20}") long lotMs,
+                         @Value("${sdmis.sse.cluster.lot-taille:100}") int lotTaille,
+                         @Value("${sdmis.sse.cluster.file-capacite:10000}") int capacite,
+                         @Value("${sdmis.sse.cluster.dedup-taille:10000}") int dedupTaille) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.sseService = sseService;
+        this.exchange = exchange;
+        this.lotMs = Math.max(1, lotMs);
+        this.lotTaille = Math.max(1, lotTaille);
+        this.dedupTaille = Math.max(1, dedupTaille);
+        this.aEmettre = new LinkedBlockingQueue<>(Math.max(1, capacite));
+        this.recues = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                return size() > SseClusterBus.this.dedupTaille;
+            }
+        };
+        // Les contenus reçus redeviennent des DTO typés : le routage SSE filtre par véhicule et par évènement
+        types.put("vehicules", liste(VehiculeSnapshotResponse.class));
+        types.put("evenements", liste(EvenementSnapshotResponse.class));
+        types.put("interventions", liste(InterventionSnapshotResponse.class));
+    }
+
+    @PostConstruct
+    void demarrer() {
+        sseService.relayer(this::relayer);
+        emetteur.scheduleWithFixedDelay(this::emettre, lotMs, lotMs, TimeUnit.MILLISECONDS);
+        LOGGER.info("Bus SSE inter-instances actif (instance {}, exchange {})", noeud, exchange);
+    }
+
+    @PreDestroy
+    void arreter() {
+        sseService.relayer(null);
+        emetteur.shutdown();
+        emettre();
+    }
+
+    private void relayer(String nom, Object payload) {
+        // Appelé par broadcast : simple mise en file, identifiant et conversion JSON sont faits par le thread sse-cluster
+        SsePublicationMessage publication = new SsePublicationMessage(null, nom, payload);
+        if (!aEmettre.offer(publication)) {
+            LOGGER.warn("Bus SSE saturé : publication '{}' non relayée aux autres instances", nom);
+        }
+    }
+
+    private void emettre() {
+        while (!aEmettre.isEmpty()) {
+            List<SsePublicationMessage> lot = new ArrayList<>(Math.min(lotTaille, aEmettre.size()));
+            aEmettre.drainTo(lot, lotTaille);
+            if (lot.isEmpty()) {
+                return;
+            }
+            for (SsePublicationMessage publication : lot) {
+                // Converti avec l'ObjectMapper de l'application (dates ISO), le convertisseur AMQP ne voit que du JSON
+                publication.setId(UUID.randomUUID());
+                publication.setPayload(objectMapper.valueToTree(publication.getPayload()));
+            }
+            SseDiffusionMessage message = new SseDiffusionMessage();
+            message.setNoeud(noeud);
+            message.setPublications(lot);
+            try {
+                rabbitTemplate.convertAndSend(exchange, "", message);
+            } catch (AmqpException e) {
+                // Diffusion au mieux : les clients des autres instances se recalent à la prochaine mise à jour
+                LOGGER.warn("Lot SSE ({} publications) non relayé aux autres instances : {}", lot.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @RabbitListener(queues = "#{sseDiffusionQueue.name}")
+    public void onDiffusion(SseDiffusionMessage message) {
+        if (noeud.equals(message.getNoeud()) || message.getPublications() == null) {
+            return;
+        }
+        for (SsePublicationMessage publication : message.getPublications()) {
+            if (publication.getId() == null || !nouvelle(publication.getId())) {
+                continue;
+            }
+            try {
+                sseService.broadcastLocal(publication.getNom(), contenu(publication));
+            } catch (IllegalArgumentException e) {
+                LOGGER.warn("Publication SSE '{}' reçue de l'instance {} illisible : {}",
+                        publication.getNom(), message.getNoeud(), e.getMessage());
+            }
+        }
+    }
+
+    private synchronized boolean nouvelle(UUID id) {
+        return recues.put(id, Boolean.TRUE) == null;
+    }
+
+    private Object contenu(SsePublicationMessage publication) {
+        JavaType type = types.get(publication.getNom());
+        return type != null
+                ? objectMapper.convertValue(publication.getPayload(), type)
+                : publication.getPayload();
+    }
+
+    private JavaType liste(Class<?> element) {
+        return objectMapper.getTypeFactory().constructCollectionType(List.class, element);
+    }
+}
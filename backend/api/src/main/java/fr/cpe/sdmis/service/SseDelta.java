@@ -0,0 +1,90 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.VehiculeSnapshotResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Mode delta d'un abonné SSE : mémorise le dernier état véhicule envoyé et ne transmet que les champs modifiés
+ * (évènement {@code vehicules-delta}, clé {@code id}). Une image complète (évènement {@code vehicules})
+ * part au premier envoi puis toutes les {@code imageCompleteNs} par véhicule. Utilisé par le seul répartiteur.
+ */
+final class SseDelta {
+    static final String EVENEMENT = "vehicules-delta";
+
+    record Decoupage(List<Object> completes, List<Object> deltas) { }
+
+    private final long imageCompleteNs;
+    private final Map<UUID, Etat> etats = new HashMap<>();
+
+    SseDelta(long imageCompleteNs) {
+        this.imageCompleteNs = imageCompleteNs;
+    }
+
+    Decoupage decouper(Collection<?> elements, long maintenantNs) {
+        List<Object> completes = new ArrayList<>();
+        List<Object> deltas = new ArrayList<>();
+        for (Object element : elements) {
+            if (!(element instanceof VehiculeSnapshotResponse vehicule)) {
+                completes.add(element);
+                continue;
+            }
+            Etat etat = etats.get(vehicule.id());
+            if (etat == null || maintenantNs - etat.imageCompleteNs >= imageCompleteNs) {
+                etats.put(vehicule.id(), new Etat(vehicule, maintenantNs));
+                completes.add(vehicule);
+                continue;
+            }
+            Map<String, Object> delta = delta(etat.envoye, vehicule);
+            if (delta != null) {
+                etat.envoye = vehicule;
+                deltas.add(delta);
+            }
+        }
+        return new Decoupage(completes, deltas);
+    }
+
+    private static Map<String, Object> delta(VehiculeSnapshotResponse avant, VehiculeSnapshotResponse apres) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("id", apres.id());
+        if (!Objects.equals(avant.plaqueImmat(), apres.plaqueImmat())) {
+            delta.put("plaqueImmat", apres.plaqueImmat());
+        }
+        if (avant.latitude() != apres.latitude()) {
+            delta.put("latitude", apres.latitude());
+        }
+        if (avant.longitude() != apres.longitude()) {
+            delta.put("longitude", apres.longitude());
+        }
+        if (!Objects.equals(avant.dernierePositionConnue(), apres.dernierePositionConnue())) {
+            delta.put("dernierePositionConnue", apres.dernierePositionConnue());
+        }
+        if (!Objects.equals(avant.statut(), apres.statut())) {
+            delta.put("statut", apres.statut());
+        }
+        if (!Objects.equals(avant.caserne(), apres.caserne())) {
+            delta.put("caserne", apres.caserne());
+        }
+        if (!Objects.equals(avant.equipements(), apres.equipements())) {
+            delta.put("equipements", apres.equipements());
+        }
+        return delta.size() > 1 ? delta : null;
+    }
+
+    private static final class Etat {
+        private VehiculeSnapshotResponse envoye;
+        private final long imageCompleteNs;
+
+        private Etat(VehiculeSnapshotResponse envoye, long imageCompleteNs) {
+            this.envoye = envoye;
+            this.imageCompleteNs = imageCompleteNs;
+        }
+    }
+}
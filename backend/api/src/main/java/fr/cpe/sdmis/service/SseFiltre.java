@@ -0,0 +1,20 @@
+package fr.cpe.sdmis.service;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Abonnement SSE : types d'évènements voulus (tous si vide) et, pour un abonné ciblé,
+ * les seuls véhicules et évènements dont il doit recevoir les mises à jour.
+ */
+record SseFiltre(Set<String> types, Set<UUID> vehicules, Set<UUID> evenements) {
+    static final SseFiltre TOUT = new SseFiltre(Set.of(), Set.of(), Set.of());
+
+    boolean cible() {
+        return !vehicules.isEmpty() || !evenements.isEmpty();
+    }
+
+    boolean accepte(String type) {
+        return types.isEmpty() || types.contains(type);
+    }
+}
@@ -0,0 +1,76 @@
+package fr.cpe.sdmis.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grille spatiale des abonnés ayant déclaré un viewport : chaque abonné est inscrit dans les cellules
+ * que couvre sa zone, une position ne consulte donc que les abonnés de sa cellule.
+ * Une zone couvrant plus de {@code cellulesMax} cellules est rangée à part et reçoit toutes les positions.
+ */
+final class SseGrille {
+    private final double pasDeg;
+    private final int cellulesMax;
+    private final Map<Long, Set<SseAbonne>> cellules = new ConcurrentHashMap<>();
+    private final Set<SseAbonne> larges = ConcurrentHashMap.newKeySet();
+
+    SseGrille(double pasDeg, int cellulesMax) {
+        if (pasDeg <= 0) {
+            throw new IllegalArgumentException("Pas de grille SSE invalide : " + pasDeg);
+        }
+        this.pasDeg = pasDeg;
+        this.cellulesMax = cellulesMax;
+    }
+
+    void inscrire(SseAbonne abonne, SseViewport viewport) {
+        long ligneMin = indice(viewport.latMin());
+        long ligneMax = indice(viewport.latMax());
+        long colonneMin = indice(viewport.lonMin());
+        long colonneMax = indice(viewport.lonMax());
+        // Produit en double : en long, une zone immense pourrait déborder et passer sous cellulesMax
+        if (((double) ligneMax - ligneMin + 1) * ((double) colonneMax - colonneMin + 1) > cellulesMax) {
+            larges.add(abonne);
+            return;
+        }
+        for (long ligne = ligneMin; ligne <= ligneMax; ligne++) {
+            for (long colonne = colonneMin; colonne <= colonneMax; colonne++) {
+                cellules.computeIfAbsent(cle(ligne, colonne), k -> ConcurrentHashMap.newKeySet()).add(abonne);
+            }
+        }
+    }
+
+    void desinscrire(SseAbonne abonne, SseViewport viewport) {
+        if (larges.remove(abonne)) {
+            return;
+        }
+        for (long ligne = indice(viewport.latMin()); ligne <= indice(viewport.latMax()); ligne++) {
+            for (long colonne = indice(viewport.lonMin()); colonne <= indice(viewport.lonMax()); colonne++) {
+                cellules.computeIfPresent(cle(ligne, colonne), (k, abonnes) -> {
+                    abonnes.remove(abonne);
+                    return abonnes.isEmpty() ? null : abonnes;
+                });
+            }
+        }
+    }
+
+    boolean vide() {
+        return cellules.isEmpty() && larges.isEmpty();
+    }
+
+    Set<SseAbonne> cellule(double lat, double lon) {
+        return cellules.getOrDefault(cle(indice(lat), indice(lon)), Set.of());
+    }
+
+    Set<SseAbonne> larges() {
+        return larges;
+    }
+
+    private long indice(double degres) {
+        return (long) Math.floor(degres / pasDeg);
+    }
+
+    private static long cle(long ligne, long colonne) {
+        return (ligne << 32) ^ (colonne & 0xffffffffL);
+    }
+}
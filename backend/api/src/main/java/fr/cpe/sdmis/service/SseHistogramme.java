@@ -0,0 +1,48 @@
+package fr.cpe.sdmis.service;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme cumulatif à bornes fixes (en millisecondes), alimenté sans verrou par les expéditeurs SSE.
+ * Exporté à la manière Prometheus : {@code <prefixe>Le<borne>ms} compte les mesures inférieures ou égales à la borne.
+ */
+final class SseHistogramme {
+    private final long[] bornesMs;
+    private final long[] bornesNs;
+    private final LongAdder[] compteurs;
+    private final LongAdder totalNs = new LongAdder();
+
+    SseHistogramme(long... bornesMs) {
+        this.bornesMs = bornesMs.clone();
+        this.bornesNs = new long[bornesMs.length];
+        this.compteurs = new LongAdder[bornesMs.length + 1];
+        for (int i = 0; i < bornesMs.length; i++) {
+            bornesNs[i] = TimeUnit.MILLISECONDS.toNanos(bornesMs[i]);
+        }
+        for (int i = 0; i < compteurs.length; i++) {
+            compteurs[i] = new LongAdder();
+        }
+    }
+
+    void enregistrer(long dureeNs) {
+        int i = 0;
+        while (i < bornesNs.length && dureeNs > bornesNs[i]) {
+            i++;
+        }
+        compteurs[i].increment();
+        totalNs.add(dureeNs);
+    }
+
+    void exporter(String prefixe, Map<String, Long> statistiques) {
+        long cumul = 0;
+        for (int i = 0; i < bornesMs.length; i++) {
+            cumul += compteurs[i].sum();
+            statistiques.put(prefixe + "Le" + bornesMs[i] + "ms", cumul);
+        }
+        cumul += compteurs[bornesMs.length].sum();
+        statistiques.put(prefixe + "Total", cumul);
+        statistiques.put(prefixe + "SommeUs", TimeUnit.NANOSECONDS.toMicros(totalNs.sum()));
+    }
+}
@@ -0,0 +1,49 @@
+package fr.cpe.sdmis.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Journal circulaire des dernières publications SSE, numérotées de façon croissante.
+ * Ecrit et relu par le seul répartiteur ; les bornes sont publiées en volatile pour les threads de requête.
+ */
+final class SseJournal {
+    record Entree(long sequence, String nom, Object payload) { }
+
+    private final Entree[] entrees;
+    private volatile long dernier;
+    private volatile long plusAncien = 1;
+
+    SseJournal(int capacite) {
+        this.entrees = new Entree[Math.max(1, capacite)];
+    }
+
+    long ajouter(String nom, Object payload) {
+        long sequence = dernier + 1;
+        entrees[(int) (sequence % entrees.length)] = new Entree(sequence, nom, payload);
+        if (sequence - plusAncien >= entrees.length) {
+            plusAncien = sequence - entrees.length + 1;
+        }
+        dernier = sequence;
+        return sequence;
+    }
+
+    long dernier() {
+        return dernier;
+    }
+
+    /**
+     * Vrai si toutes les publications postérieures à {@code sequence} sont encore dans le journal.
+     */
+    boolean couvre(long sequence) {
+        return sequence >= plusAncien - 1 && sequence <= dernier;
+    }
+
+    List<Entree> depuis(long sequence) {
+        List<Entree> resultat = new ArrayList<>();
+        for (long s = Math.max(sequence + 1, plusAncien); s <= dernier; s++) {
+            resultat.add(entrees[(int) (s % entrees.length)]);
+        }
+        return resultat;
+    }
+}
@@ -0,0 +1,91 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.VehiculeSnapshotResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Cadence des positions véhicules pour une classe d'abonnés : au plus une mise à jour par véhicule
+ * toutes les {@code intervalleNs}, la dernière valeur reçue remplaçant celle en attente.
+ * Un changement de statut part immédiatement. Utilisé par le seul répartiteur SSE (pas de synchronisation).
+ */
+final class SseLimiteur {
+    private final long intervalleNs;
+    private final Map<UUID, Etat> etats = new HashMap<>();
+    private final Map<UUID, Etat> enAttente = new LinkedHashMap<>();
+
+    SseLimiteur(double miseAJourParSeconde) {
+        this.intervalleNs = miseAJourParSeconde > 0 ? (long) (1_000_000_000L / miseAJourParSeconde) : 0L;
+    }
+
+    boolean actif() {
+        return intervalleNs > 0;
+    }
+
+    /**
+     * Retourne les éléments à diffuser tout de suite ; les positions trop rapprochées sont mises en attente.
+     */
+    List<Object> admettre(Collection<?> elements, long maintenantNs) {
+        List<Object> admis = new ArrayList<>(elements.size());
+        for (Object element : elements) {
+            if (!(element instanceof VehiculeSnapshotResponse vehicule)) {
+                admis.add(element);
+                continue;
+            }
+            Etat etat = etats.get(vehicule.id());
+            if (etat == null) {
+                etat = new Etat();
+                etats.put(vehicule.id(), etat);
+            } else if (Objects.equals(etat.statut, vehicule.statut()) && maintenantNs - etat.dernierEnvoiNs < intervalleNs) {
+                etat.enAttente = vehicule;
+                enAttente.put(vehicule.id(), etat);
+                continue;
+            }
+            envoye(etat, vehicule, maintenantNs);
+            enAttente.remove(vehicule.id());
+            admis.add(vehicule);
+        }
+        return admis;
+    }
+
+    /**
+     * Dernières positions en attente dont la fenêtre est écoulée.
+     */
+    List<Object> echus(long maintenantNs) {
+        if (enAttente.isEmpty()) {
+            return List.of();
+        }
+        List<Object> echus = new ArrayList<>();
+        Iterator<Etat> iterator = enAttente.values().iterator();
+        while (iterator.hasNext()) {
+            Etat etat = iterator.next();
+            if (maintenantNs - etat.dernierEnvoiNs >= intervalleNs) {
+                VehiculeSnapshotResponse vehicule = etat.enAttente;
+                envoye(etat, vehicule, maintenantNs);
+                iterator.remove();
+                echus.add(vehicule);
+            }
+        }
+        return echus;
+    }
+
+    private static void envoye(Etat etat, VehiculeSnapshotResponse vehicule, long maintenantNs) {
+        etat.dernierEnvoiNs = maintenantNs;
+        etat.statut = vehicule.statut();
+        etat.enAttente = null;
+    }
+
+    private static final class Etat {
+        private long dernierEnvoiNs;
+        private String statut;
+        private VehiculeSnapshotResponse enAttente;
+    }
+}
@@ -0,0 +1,246 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.EvenementSnapshotResponse;
+import fr.cpe.sdmis.dto.InterventionSnapshotResponse;
+import fr.cpe.sdmis.dto.VehiculeSnapshotResponse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index de routage SSE d'une classe d'abonnés : par type, par véhicule, par évènement et par viewport.
+ * Un abonné ciblé ne reçoit que les éléments qui le concernent ; les cartes ayant déclaré un viewport
+ * ne reçoivent que les véhicules dont l'ancienne ou la nouvelle position est dans leur zone.
+ * {@link #router} et {@link #indexer} ne sont appelés que par le répartiteur ; le retrait et le déplacement
+ * de viewport se font depuis les threads de requête.
+ */
+final class SseRoutage {
+    static final String VEHICULES = "vehicules";
+
+    @FunctionalInterface
+    interface Envoi {
+        void envoyer(String nom, Object payload, Collection<SseAbonne> destinataires);
+    }
+
+    private final Set<SseAbonne> tousTypes = ConcurrentHashMap.newKeySet();
+    private final Map<String, Set<SseAbonne>> parType = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<SseAbonne>> parVehicule = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<SseAbonne>> parEvenement = new ConcurrentHashMap<>();
+    private final Set<SseAbonne> inscrits = ConcurrentHashMap.newKeySet();
+    private final SseGrille grille;
+    // Dernière position diffusée par véhicule à cette classe, lue et écrite par le seul répartiteur
+    private final Map<UUID, double[]> dernieresPositions = new HashMap<>();
+
+    SseRoutage(double pasGrilleDeg, int cellulesMax) {
+        this.grille = new SseGrille(pasGrilleDeg, cellulesMax);
+    }
+
+    boolean vide() {
+        return inscrits.isEmpty();
+    }
+
+    // Synchronisé sur l'abonné avec desindexer : un abonné fermé n'est jamais réinscrit
+    void indexer(SseAbonne abonne) {
+        synchronized (abonne) {
+            if (abonne.ferme()) {
+                return;
+            }
+            inscrits.add(abonne);
+            SseFiltre filtre = abonne.filtre();
+            if (filtre.cible()) {
+                filtre.vehicules().forEach(id -> parVehicule.computeIfAbsent(id, cle -> ConcurrentHashMap.newKeySet()).add(abonne));
+                filtre.evenements().forEach(id -> parEvenement.computeIfAbsent(id, cle -> ConcurrentHashMap.newKeySet()).add(abonne));
+            } else if (filtre.types().isEmpty()) {
+                tousTypes.add(abonne);
+            } else {
+                filtre.types().forEach(type -> parType.computeIfAbsent(type, cle -> ConcurrentHashMap.newKeySet()).add(abonne));
+            }
+            if (abonne.viewport() != null) {
+                grille.inscrire(abonne, abonne.viewport());
+            }
+        }
+    }
+
+    void desindexer(SseAbonne abonne) {
+        synchronized (abonne) {
+            SseFiltre filtre = abonne.filtre();
+            tousTypes.remove(abonne);
+            filtre.types().forEach(type -> retirerDe(parType, type, abonne));
+            filtre.vehicules().forEach(id -> retirerDe(parVehicule, id, abonne));
+            filtre.evenements().forEach(id -> retirerDe(parEvenement, id, abonne));
+            if (abonne.viewport() != null && inscrits.contains(abonne)) {
+                grille.desinscrire(abonne, abonne.viewport());
+            }
+            inscrits.remove(abonne);
+        }
+    }
+
+    void deplacer(SseAbonne abonne, SseViewport viewport) {
+        synchronized (abonne) {
+            if (abonne.ferme()) {
+                return;
+            }
+            // Un abonné pas encore indexé sera inscrit dans la grille par indexer
+            boolean inscrit = inscrits.contains(abonne);
+            if (inscrit && abonne.viewport() != null) {
+                grille.desinscrire(abonne, abonne.viewport());
+            }
+            abonne.viewport(viewport);
+            if (inscrit) {
+                grille.inscrire(abonne, viewport);
+            }
+        }
+    }
+
+    void router(String nom, Object payload, Envoi envoi) {
+        boolean positions = VEHICULES.equals(nom);
+        Set<SseAbonne> duType = parType.getOrDefault(nom, Set.of());
+        if (!tousTypes.isEmpty() || !duType.isEmpty()) {
+            // Un abonné non ciblé est soit dans tousTypes, soit dans parType : pas de double envoi
+            List<SseAbonne> complets = new ArrayList<>(tousTypes.size() + duType.size());
+            for (SseAbonne abonne : tousTypes) {
+                if (!positions || abonne.viewport() == null) {
+                    complets.add(abonne);
+                }
+            }
+            for (SseAbonne abonne : duType) {
+                if (!positions || abonne.viewport() == null) {
+                    complets.add(abonne);
+                }
+            }
+            if (!complets.isEmpty()) {
+                envoi.envoyer(nom, payload, complets);
+            }
+        }
+        if (!(payload instanceof Collection<?> elements)) {
+            return;
+        }
+        Map<SseAbonne, List<Object>> selections = new HashMap<>();
+        boolean cibles = !parVehicule.isEmpty() || !parEvenement.isEmpty();
+        for (Object element : elements) {
+            if (cibles) {
+                UUID[] concernes = cibles(element);
+                if (concernes[0] != null) {
+                    selectionner(selections, parVehicule.get(concernes[0]), nom, element);
+                }
+                if (concernes[1] != null) {
+                    selectionner(selections, parEvenement.get(concernes[1]), nom, element);
+                }
+            }
+            if (positions && element instanceof VehiculeSnapshotResponse vehicule) {
+                selectionnerViewports(selections, vehicule);
+            }
+        }
+        if (selections.isEmpty()) {
+            return;
+        }
+        Map<List<Object>, List<SseAbonne>> parSelection = new LinkedHashMap<>();
+        selections.forEach((abonne, selection) -> parSelection.computeIfAbsent(selection, cle -> new ArrayList<>()).add(abonne));
+        parSelection.forEach((selection, destinataires) -> envoi.envoyer(nom, selection, destinataires));
+    }
+
+    /**
+     * Part du contenu qui concerne un seul abonné (rejeu, instantané), ou null si rien ne le concerne.
+     */
+    static Object selection(SseAbonne abonne, String nom, Object payload) {
+        SseFiltre filtre = abonne.filtre();
+        if (!filtre.accepte(nom)) {
+            return null;
+        }
+        SseViewport viewport = VEHICULES.equals(nom) ? abonne.viewport() : null;
+        if (!filtre.cible() && viewport == null) {
+            return payload;
+        }
+        if (!(payload instanceof Collection<?> elements)) {
+            return null;
+        }
+        List<Object> selection = new ArrayList<>();
+        for (Object element : elements) {
+            if (filtre.cible()) {
+                UUID[] concernes = cibles(element);
+                if ((concernes[0] != null && filtre.vehicules().contains(concernes[0]))
+                        || (concernes[1] != null && filtre.evenements().contains(concernes[1]))) {
+                    selection.add(element);
+                }
+            } else if (element instanceof VehiculeSnapshotResponse vehicule
+                    && viewport.contient(vehicule.latitude(), vehicule.longitude())) {
+                selection.add(element);
+            }
+        }
+        return selection.isEmpty() ? null : selection;
+    }
+
+    private static void selectionner(Map<SseAbonne, List<Object>> selections, Set<SseAbonne> abonnes, String nom, Object element) {
+        if (abonnes == null) {
+            return;
+        }
+        for (SseAbonne abonne : abonnes) {
+            if (abonne.filtre().accepte(nom)) {
+                ajouter(selections, abonne, element);
+            }
+        }
+    }
+
+    private void selectionnerViewports(Map<SseAbonne, List<Object>> selections, VehiculeSnapshotResponse vehicule) {
+        double[] ancienne = dernieresPositions.put(vehicule.id(), new double[]{vehicule.latitude(), vehicule.longitude()});
+        if (grille.vide()) {
+            return;
+        }
+        selectionnerViewports(selections, grille.larges(), vehicule, ancienne);
+        selectionnerViewports(selections, grille.cellule(vehicule.latitude(), vehicule.longitude()), vehicule, ancienne);
+        if (ancienne != null) {
+            selectionnerViewports(selections, grille.cellule(ancienne[0], ancienne[1]), vehicule, ancienne);
+        }
+    }
+
+    private static void selectionnerViewports(Map<SseAbonne, List<Object>> selections, Set<SseAbonne> candidats,
+                                              VehiculeSnapshotResponse vehicule, double[] ancienne) {
+        for (SseAbonne abonne : candidats) {
+            SseViewport viewport = abonne.viewport();
+            if (viewport == null || !abonne.filtre().accepte(VEHICULES)) {
+                continue;
+            }
+            // L'ancienne position compte aussi : la carte doit voir le véhicule sortir de sa zone
+            if (viewport.contient(vehicule.latitude(), vehicule.longitude())
+                    || (ancienne != null && viewport.contient(ancienne[0], ancienne[1]))) {
+                ajouter(selections, abonne, vehicule);
+            }
+        }
+    }
+
+    private static void ajouter(Map<SseAbonne, List<Object>> selections, SseAbonne abonne, Object element) {
+        List<Object> selection = selections.computeIfAbsent(abonne, cle -> new ArrayList<>());
+        // Un même élément peut concerner l'abonné par plusieurs index (véhicule et évènement, deux cellules)
+        if (selection.isEmpty() || selection.get(selection.size() - 1) != element) {
+            selection.add(element);
+        }
+    }
+
+    // [véhicule, évènement] concernés par un élément diffusé
+    private static UUID[] cibles(Object element) {
+        if (element instanceof VehiculeSnapshotResponse vehicule) {
+            return new UUID[]{vehicule.id(), null};
+        }
+        if (element instanceof EvenementSnapshotResponse evenement) {
+            return new UUID[]{null, evenement.idEvenement()};
+        }
+        if (element instanceof InterventionSnapshotResponse intervention) {
+            return new UUID[]{intervention.idVehicule(), intervention.idEvenement()};
+        }
+        return new UUID[]{null, null};
+    }
+
+    private static <K> void retirerDe(Map<K, Set<SseAbonne>> index, K cle, SseAbonne abonne) {
+        index.computeIfPresent(cle, (k, abonnes) -> {
+            abonnes.remove(abonne);
+            return abonnes.isEmpty() ? null : abonnes;
+        });
+    }
+}
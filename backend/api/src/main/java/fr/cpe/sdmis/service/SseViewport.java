@@ -0,0 +1,26 @@
+package fr.cpe.sdmis.service;
+
+/**
+ * Zone visible d'une carte abonnée au flux SSE (bornes incluses).
+ */
+record SseViewport(double latMin, double lonMin, double latMax, double lonMax) {
+
+    SseViewport {
+        // Des bornes infinies ou hors du globe saturent les indices de la grille (boucle sans fin)
+        if (!dans(latMin, 90) || !dans(latMax, 90) || !dans(lonMin, 180) || !dans(lonMax, 180)) {
+            throw new IllegalArgumentException("Viewport invalide : latitudes dans [-90, 90] et longitudes dans [-180, 180] attendues");
+        }
+        if (latMin > latMax || lonMin > lonMax) {
+            throw new IllegalArgumentException("Viewport invalide : latMin <= latMax et lonMin <= lonMax attendus");
+        }
+    }
+
+    // Faux pour NaN et les infinis
+    private static boolean dans(double valeur, double limite) {
+        return valeur >= -limite && valeur <= limite;
+    }
+
+    boolean contient(double lat, double lon) {
+        return lat >= latMin && lat <= latMax && lon >= lonMin && lon <= lonMax;
+    }
+}
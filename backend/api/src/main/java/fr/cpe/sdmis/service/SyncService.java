@@ -0,0 +1,74 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.EvenementSnapshotResponse;
+import fr.cpe.sdmis.dto.InterventionCleResponse;
+import fr.cpe.sdmis.dto.InterventionSnapshotResponse;
+import fr.cpe.sdmis.dto.SyncResponse;
+import fr.cpe.sdmis.dto.VehiculeSnapshotResponse;
+import fr.cpe.sdmis.repository.IEvenementRepository;
+import fr.cpe.sdmis.repository.InterventionRepository;
+import fr.cpe.sdmis.repository.JournalModificationRepository;
+import fr.cpe.sdmis.repository.JournalModificationRepository.Modification;
+import fr.cpe.sdmis.repository.VehiculeRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Synchronisation incrémentale : un client remet la version reçue au dernier appel et ne reçoit que les véhicules,
+ * évènements et interventions modifiés depuis (plus les suppressions). Sans version, tout est renvoyé.
+ */
+@Service
+public class SyncService {
+    private final JournalModificationRepository journal;
+    private final VehiculeRepository vehiculeRepository;
+    private final IEvenementRepository evenementRepository;
+    private final InterventionRepository interventionRepository;
+
+    public SyncService(JournalModificationRepository journal,
+                       VehiculeRepository vehiculeRepository,
+                       IEvenementRepository evenementRepository,
+                       InterventionRepository interventionRepository) {
+        this.journal = journal;
+        this.vehiculeRepository = vehiculeRepository;
+        this.evenementRepository = evenementRepository;
+        this.interventionRepository = interventionRepository;
+    }
+
+    public SyncResponse depuis(Long since) {
+        // Version lue avant les données : une écriture concurrente est au pire renvoyée deux fois, jamais perdue
+        long version = journal.version();
+        if (since == null || since > version) {
+            return new SyncResponse(version, true,
+                    vehiculeRepository.findSnapshots(),
+                    evenementRepository.findSnapshots(),
+                    interventionRepository.findSnapshots(),
+                    List.of(), List.of(), List.of());
+        }
+        List<UUID> vehicules = new ArrayList<>();
+        List<UUID> evenements = new ArrayList<>();
+        List<InterventionCleResponse> interventions = new ArrayList<>();
+        List<UUID> vehiculesSupprimes = new ArrayList<>();
+        List<UUID> evenementsSupprimes = new ArrayList<>();
+        List<InterventionCleResponse> interventionsSupprimees = new ArrayList<>();
+        for (Modification modification : journal.depuis(since)) {
+            switch (modification.entite()) {
+                case JournalModificationRepository.VEHICULE ->
+                        (modification.supprime() ? vehiculesSupprimes : vehicules).add(modification.id());
+                case JournalModificationRepository.EVENEMENT ->
+                        (modification.supprime() ? evenementsSupprimes : evenements).add(modification.id());
+                case JournalModificationRepository.INTERVENTION ->
+                        (modification.supprime() ? interventionsSupprimees : interventions)
+                                .add(new InterventionCleResponse(modification.id(), modification.idSecondaire()));
+                default -> { }
+            }
+        }
+        List<VehiculeSnapshotResponse> vehiculesModifies = vehiculeRepository.findSnapshotsByIds(vehicules);
+        List<EvenementSnapshotResponse> evenementsModifies = evenementRepository.findSnapshotsByIds(evenements);
+        List<InterventionSnapshotResponse> interventionsModifiees = interventionRepository.findSnapshotsByCles(interventions);
+        return new SyncResponse(version, false, vehiculesModifies, evenementsModifies, interventionsModifiees,
+                vehiculesSupprimes, evenementsSupprimes, interventionsSupprimees);
+    }
+}
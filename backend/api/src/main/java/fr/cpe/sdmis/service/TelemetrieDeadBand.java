@@ -0,0 +1,96 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.VehiculeUpdateRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtre de bande morte : une trame dont la position et les ressources n'ont pas significativement changé
+ * depuis la dernière trame retenue ne fait qu'avancer la dernière position connue en mémoire (ni écriture, ni SSE).
+ * Une trame est retenue au moins toutes les {@code silence-max-ms} pour que la base reste vivante.
+ */
+@Component
+public class TelemetrieDeadBand {
+    private static final double RAYON_TERRE_M = 6_371_000d;
+
+    private final ConcurrentHashMap<String, Etat> etats = new ConcurrentHashMap<>();
+    private final LongAdder ignorees = new LongAdder();
+    private final double distanceMinM;
+    private final int ressourceDeltaMin;
+    private final long silenceMaxMs;
+
+    public TelemetrieDeadBand(@Value("${sdmis.telemetrie.bande-morte.distance-min-m:5}") double distanceMinM,
+                              @Value("${sdmis.telemetrie.bande-morte.ressource-delta-min:1}") int ressourceDeltaMin,
+                              @Value("${sdmis.telemetrie.bande-morte.silence-max-ms:30000}") long silenceMaxMs) {
+        this.distanceMinM = distanceMinM;
+        this.ressourceDeltaMin = ressourceDeltaMin;
+        this.silenceMaxMs = silenceMaxMs;
+    }
+
+    public boolean significative(VehiculeUpdateRequest request) {
+        long maintenant = System.currentTimeMillis();
+        boolean[] retenue = {false};
+        etats.compute(request.plaqueImmat(), (plaque, precedent) -> {
+            if (precedent == null
+                    || maintenant - precedent.retenueLe() >= silenceMaxMs
+                    || distanceM(precedent.lat(), precedent.lon(), request.lat(), request.lon()) >= distanceMinM
+                    || ressourcesChangees(precedent.ressources(), request.ressources())) {
+                retenue[0] = true;
+                return new Etat(request.lat(), request.lon(), fusionner(precedent, request.ressources()), maintenant);
+            }
+            return precedent;
+        });
+        if (!retenue[0]) {
+            ignorees.increment();
+        }
+        return retenue[0];
+    }
+
+    public Map<String, Long> statistiques() {
+        return Map.of("tramesBandeMorte", ignorees.sum());
+    }
+
+    private boolean ressourcesChangees(Map<String, Integer> precedentes, Map<String, Integer> nouvelles) {
+        if (nouvelles == null) {
+            return false;
+        }
+        for (Map.Entry<String, Integer> entry : nouvelles.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            Integer avant = precedentes.get(entry.getKey());
+            if (avant == null || Math.abs(entry.getValue() - avant) >= ressourceDeltaMin) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, Integer> fusionner(Etat precedent, Map<String, Integer> nouvelles) {
+        Map<String, Integer> fusion = precedent != null ? new HashMap<>(precedent.ressources()) : new HashMap<>();
+        if (nouvelles != null) {
+            nouvelles.forEach((nom, contenance) -> {
+                if (contenance != null) {
+                    fusion.put(nom, contenance);
+                }
+            });
+        }
+        return Collections.unmodifiableMap(fusion);
+    }
+
+    private static double distanceM(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RAYON_TERRE_M * Math.asin(Math.sqrt(a));
+    }
+
+    private record Etat(double lat, double lon, Map<String, Integer> ressources, long retenueLe) { }
+}
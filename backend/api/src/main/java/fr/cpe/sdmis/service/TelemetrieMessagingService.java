@@ -0,0 +1,57 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.VehiculeUpdateRequest;
+import fr.cpe.sdmis.dto.VehiculeUpdateResultResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "sdmis.telemetrie.amqp.actif", havingValue = "true")
+public class TelemetrieMessagingService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TelemetrieMessagingService.class);
+
+    private final VehiculeService vehiculeService;
+    private final VehiculePositionBuffer positionBuffer;
+    private final long reessaiMs;
+
+    public TelemetrieMessagingService(VehiculeService vehiculeService,
+                                      VehiculePositionBuffer positionBuffer,
+                                      @Value("${sdmis.telemetrie.amqp.reessai-ms:2000}") long reessaiMs) {
+        this.vehiculeService = vehiculeService;
+        this.positionBuffer = positionBuffer;
+        this.reessaiMs = reessaiMs;
+    }
+
+    @RabbitListener(queues = "${sdmis.telemetrie.amqp.file}", containerFactory = "telemetrieListenerContainerFactory")
+    public void onTelemetrie(List<VehiculeUpdateRequest> trames) {
+        List<VehiculeUpdateResultResponse> resultats = vehiculeService.updateVehicules(trames);
+        long rejetees = resultats.stream()
+                .filter(resultat -> !VehiculeUpdateResultResponse.APPLIQUE.equals(resultat.statut())
+                        && !VehiculeUpdateResultResponse.INCHANGE.equals(resultat.statut()))
+                .count();
+        if (rejetees > 0) {
+            LOGGER.debug("{} trames sur {} écartées dans le lot de télémétrie", rejetees, trames.size());
+        }
+        // Le lot n'est acquitté qu'une fois écrit : en cas d'échec il reste dans la file (les trames déjà
+        // retenues restent aussi dans le tampon, la nouvelle livraison sera écartée comme doublon).
+        if (!positionBuffer.flush()) {
+            attendre();
+            throw new AmqpException("Ecriture du lot de télémétrie impossible, lot remis en file");
+        }
+    }
+
+    private void attendre() {
+        try {
+            Thread.sleep(reessaiMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
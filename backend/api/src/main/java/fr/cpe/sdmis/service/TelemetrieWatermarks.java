@@ -0,0 +1,88 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.VehiculeUpdateRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plus haut horodatage accepté par plaque : les trames en retard ou rejouées sont écartées
+ * avant toute écriture en base ou diffusion SSE.
+ */
+@Component
+public class TelemetrieWatermarks {
+
+    public enum Verdict { ACCEPTEE, OBSOLETE, DOUBLON, FUTURE }
+
+    private final ConcurrentHashMap<String, Marque> hautesEaux = new ConcurrentHashMap<>();
+    private final LongAdder obsoletes = new LongAdder();
+    private final LongAdder doublons = new LongAdder();
+    private final LongAdder futures = new LongAdder();
+    private final long avanceMaxMicros;
+
+    public TelemetrieWatermarks(@Value("${sdmis.telemetrie.horodatage.avance-max-ms:60000}") long avanceMaxMs) {
+        this.avanceMaxMicros = TimeUnit.MILLISECONDS.toMicros(avanceMaxMs);
+    }
+
+    public Verdict evaluer(VehiculeUpdateRequest request) {
+        if (request.timestamp() == null) {
+            return Verdict.ACCEPTEE;
+        }
+        long horodatage = micros(request.timestamp().toInstant());
+        if (horodatage - micros(Instant.now()) > avanceMaxMicros) {
+            // Une horloge en avance bloquerait définitivement les trames suivantes du véhicule
+            futures.increment();
+            return Verdict.FUTURE;
+        }
+        Marque candidate = new Marque(horodatage, Contenu.de(request));
+        while (true) {
+            Marque courante = hautesEaux.putIfAbsent(request.plaqueImmat(), candidate);
+            if (courante == null) {
+                return Verdict.ACCEPTEE;
+            }
+            if (horodatage < courante.horodatage()) {
+                obsoletes.increment();
+                return Verdict.OBSOLETE;
+            }
+            // Les horodatages micro:bit sont à la seconde : même seconde et même contenu = doublon
+            if (horodatage == courante.horodatage() && candidate.contenu().equals(courante.contenu())) {
+                doublons.increment();
+                return Verdict.DOUBLON;
+            }
+            if (hautesEaux.replace(request.plaqueImmat(), courante, candidate)) {
+                return Verdict.ACCEPTEE;
+            }
+        }
+    }
+
+    public Map<String, Long> statistiques() {
+        return Map.of(
+                "tramesObsoletes", obsoletes.sum(),
+                "tramesDoublons", doublons.sum(),
+                "tramesFutures", futures.sum()
+        );
+    }
+
+    private static long micros(Instant instant) {
+        return TimeUnit.SECONDS.toMicros(instant.getEpochSecond()) + TimeUnit.NANOSECONDS.toMicros(instant.getNano());
+    }
+
+    private record Marque(long horodatage, Contenu contenu) { }
+
+    // Champs comparés un à un : une empreinte entière pourrait confondre deux trames différentes
+    private record Contenu(Double lat, Double lon, Map<String, Integer> ressources) {
+        static Contenu de(VehiculeUpdateRequest request) {
+            Map<String, Integer> ressources = request.ressources() == null
+                    ? null
+                    : Collections.unmodifiableMap(new HashMap<>(request.ressources()));
+            return new Contenu(request.lat(), request.lon(), ressources);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package fr.cpe.sdmis.service;
+
+import fr.cpe.sdmis.dto.VehiculeUpdateRequest;
+import fr.cpe.sdmis.repository.VehiculeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tampon d'écriture différée des trames véhicules : une seule trame (la plus récente) est conservée par plaque
+ * et le lot est écrit en base toutes les {@code intervalle-ms} ou dès que {@code seuil} plaques sont en attente.
+ * Une trame acceptée est donc persistée au plus tard après un intervalle (plus la durée d'écriture).
+ */
+@Component
+public class VehiculePositionBuffer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VehiculePositionBuffer.class);
+
+    private final VehiculeRepository vehiculeRepository;
+    private final long intervalleMs;
+    private final int seuil;
+    private final Stripe[] stripes;
+    private final AtomicInteger enAttente = new AtomicInteger();
+    private final AtomicBoolean flushDemande = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "vehicule-position-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public VehiculePositionBuffer(VehiculeRepository vehiculeRepository,
+                                  @Value("${sdmis.telemetrie.tampon.intervalle-ms:1000}") long intervalleMs,
+                                  @Value("${sdmis.telemetrie.tampon.seuil:500}") int seuil,
+                                  @Value("${sdmis.telemetrie.tampon.stripes:16}") int nbStripes) {
+        this.vehiculeRepository = vehiculeRepository;
+        this.intervalleMs = intervalleMs;
+        this.seuil = seuil;
+        this.stripes = new Stripe[Math.max(1, nbStripes)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @PostConstruct
+    void demarrer() {
+        flusher.scheduleAtFixedRate(this::flushPlanifie, intervalleMs, intervalleMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void arreter() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public void offer(VehiculeUpdateRequest request) {
+        Stripe stripe = stripe(request.plaqueImmat());
+        boolean nouvellePlaque;
+        stripe.lock.lock();
+        try {
+            VehiculeUpdateRequest precedente = stripe.enAttente.get(request.plaqueImmat());
+            stripe.enAttente.put(request.plaqueImmat(), fusionner(precedente, request));
+            nouvellePlaque = precedente == null;
+        } finally {
+            stripe.lock.unlock();
+        }
+        if (nouvellePlaque && enAttente.incrementAndGet() >= seuil && flushDemande.compareAndSet(false, true)) {
+            flusher.execute(this::flushPlanifie);
+        }
+    }
+
+    public synchronized boolean flush() {
+        Map<String, VehiculeUpdateRequest> lot = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                if (!stripe.enAttente.isEmpty()) {
+                    lot.putAll(stripe.enAttente);
+                    stripe.enAttente = new HashMap<>();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        if (lot.isEmpty()) {
+            return true;
+        }
+        enAttente.addAndGet(-lot.size());
+        try {
+            vehiculeRepository.updateVehicules(new ArrayList<>(lot.values()));
+            return true;
+        } catch (DataAccessException e) {
+            LOGGER.error("Echec écriture différée de {} positions véhicules, nouvel essai au prochain cycle : {}", lot.size(), e.getMessage());
+            reinjecter(lot.values());
+            return false;
+        }
+    }
+
+    private void flushPlanifie() {
+        flushDemande.set(false);
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOGGER.error("Echec inattendu de l'écriture différée des positions : {}", e.getMessage());
+        }
+    }
+
+    private void reinjecter(Iterable<VehiculeUpdateRequest> requests) {
+        for (VehiculeUpdateRequest request : requests) {
+            Stripe stripe = stripe(request.plaqueImmat());
+            stripe.lock.lock();
+            try {
+                // Une trame arrivée entre-temps reste prioritaire sur celle qui a échoué
+                VehiculeUpdateRequest recente = stripe.enAttente.get(request.plaqueImmat());
+                stripe.enAttente.put(request.plaqueImmat(), fusionner(request, recente));
+                if (recente == null) {
+                    enAttente.incrementAndGet();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private Stripe stripe(String plaque) {
+        return stripes[Math.floorMod(plaque.hashCode(), stripes.length)];
+    }
+
+    private static VehiculeUpdateRequest fusionner(VehiculeUpdateRequest ancienne, VehiculeUpdateRequest nouvelle) {
+        if (ancienne == null) {
+            return nouvelle;
+        }
+        if (nouvelle == null) {
+            return ancienne;
+        }
+        Map<String, Integer> ressources = nouvelle.ressources();
+        if (ancienne.ressources() != null && !ancienne.ressources().isEmpty()) {
+            ressources = new HashMap<>(ancienne.ressources());
+            if (nouvelle.ressources() != null) {
+                ressources.putAll(nouvelle.ressources());
+            }
+        }
+        return new VehiculeUpdateRequest(
+                nouvelle.plaqueImmat(),
+                nouvelle.lat(),
+                nouvelle.lon(),
+                nouvelle.timestamp() != null ? nouvelle.timestamp() : ancienne.timestamp(),
+                ressources,
+                nouvelle.btn()
+        );
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<String, VehiculeUpdateRequest> enAttente = new HashMap<>();
+    }
+}
@@ -3,32 +3,86 @@ package fr.cpe.sdmis.service;
 import fr.cpe.sdmis.dto.VehiculeOperationnelResponse;
 import fr.cpe.sdmis.dto.VehiculeSnapshotResponse;
 import fr.cpe.sdmis.dto.VehiculeUpdateRequest;
+import fr.cpe.sdmis.dto.VehiculeUpdateResultResponse;
 import fr.cpe.sdmis.dto.VehiculeIdentResponse;
 import fr.cpe.sdmis.dto.VehiculeEnRouteResponse;
 import fr.cpe.sdmis.dto.VehiculeStatusUpdateRequest;
 import fr.cpe.sdmis.dto.EquipementVehiculeResponse;
 import fr.cpe.sdmis.dto.VehiculeCreateRequest;
+import fr.cpe.sdmis.dto.PositionHistoriqueResponse;
+import fr.cpe.sdmis.dto.EquipementContenanceResponse;
 import fr.cpe.sdmis.repository.CaserneRepository;
+import fr.cpe.sdmis.repository.FlotteEtatStore;
+import fr.cpe.sdmis.repository.PositionHistoriqueRepository;
+import fr.cpe.sdmis.repository.VehiculeIndex;
 import fr.cpe.sdmis.repository.VehiculeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import fr.cpe.sdmis.service.SdmisSseService;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 @Service
 public class VehiculeService {
 
     private final VehiculeRepository vehiculeRepository;
+    private final FlotteEtatStore flotte;
     private final CaserneRepository caserneRepository;
     private final SdmisSseService sseService;
+    private final VehiculeIndex vehiculeIndex;
+    private final VehiculePositionBuffer positionBuffer;
+    private final TelemetrieWatermarks watermarks;
+    private final TelemetrieDeadBand deadBand;
+    private final PositionHistoriqueWriter historiqueWriter;
+    private final PositionHistoriqueRepository historiqueRepository;
+    private final Validator validator;
+    private final int historiqueLimite;
 
-    public VehiculeService(VehiculeRepository vehiculeRepository, CaserneRepository caserneRepository, SdmisSseService sseService) {
+    public VehiculeService(VehiculeRepository vehiculeRepository,
+                           FlotteEtatStore flotte,
+                           CaserneRepository caserneRepository,
+                           SdmisSseService sseService,
+                           VehiculeIndex vehiculeIndex,
+                           VehiculePositionBuffer positionBuffer,
+                           TelemetrieWatermarks watermarks,
+                           TelemetrieDeadBand deadBand,
+                           PositionHistoriqueWriter historiqueWriter,
+                           PositionHistoriqueRepository historiqueRepository,
+                           Validator validator,
+                           @Value("${sdmis.historique.trace-limite:10000}") int historiqueLimite) {
         this.vehiculeRepository = vehiculeRepository;
+        this.flotte = flotte;
         this.caserneRepository = caserneRepository;
         this.sseService = sseService;
+        this.vehiculeIndex = vehiculeIndex;
+        this.positionBuffer = positionBuffer;
+        this.watermarks = watermarks;
+        this.deadBand = deadBand;
+        this.historiqueWriter = historiqueWriter;
+        this.historiqueRepository = historiqueRepository;
+        this.validator = validator;
+        this.historiqueLimite = historiqueLimite;
+    }
+
+    @PostConstruct
+    void enregistrerInstantane() {
+        sseService.enregistrerInstantane("vehicules", this::snapshots);
     }
 
     public List<VehiculeOperationnelResponse> findOperationnels() {
@@ -36,13 +90,144 @@ public class VehiculeService {
     }
 
     public void updateVehicule(VehiculeUpdateRequest request) {
-        vehiculeRepository.updateVehicule(request);
-        vehiculeRepository.findSnapshotByPlaque(request.plaqueImmat())
-                .ifPresent(snapshot -> sseService.broadcast("vehicules", List.of(snapshot)));
+        updateVehicules(List.of(request));
+    }
+
+    public List<VehiculeUpdateResultResponse> updateVehicules(List<VehiculeUpdateRequest> requests) {
+        VehiculeUpdateResultResponse[] resultats = new VehiculeUpdateResultResponse[requests.size()];
+        List<VehiculeUpdateRequest> valides = new ArrayList<>();
+        List<Integer> indexValides = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            VehiculeUpdateRequest request = requests.get(i);
+            if (request == null) {
+                resultats[i] = new VehiculeUpdateResultResponse(i, null, VehiculeUpdateResultResponse.INVALIDE, "Elément vide ou illisible");
+                continue;
+            }
+            Set<ConstraintViolation<VehiculeUpdateRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                String message = violations.stream()
+                        .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", "));
+                resultats[i] = new VehiculeUpdateResultResponse(i, request.plaqueImmat(), VehiculeUpdateResultResponse.INVALIDE, message);
+                continue;
+            }
+            valides.add(request);
+            indexValides.add(i);
+        }
+
+        // Les trames valides sont confiées au tampon d'écriture différée ; l'état de la flotte en mémoire
+        // est mis à jour tout de suite et le SSE part de cet état
+        Map<UUID, UnaryOperator<VehiculeSnapshotResponse>> majs = new LinkedHashMap<>();
+        Set<UUID> vehiculesAppliques = new HashSet<>();
+        for (int k = 0; k < valides.size(); k++) {
+            int index = indexValides.get(k);
+            VehiculeUpdateRequest request = valides.get(k);
+            String plaque = request.plaqueImmat();
+            Optional<UUID> idVehicule = vehiculeIndex.idVehicule(plaque);
+            if (idVehicule.isEmpty()) {
+                resultats[index] = new VehiculeUpdateResultResponse(index, plaque, VehiculeUpdateResultResponse.VEHICULE_INCONNU, "Plaque inconnue");
+                continue;
+            }
+            resultats[index] = switch (watermarks.evaluer(request)) {
+                case OBSOLETE -> new VehiculeUpdateResultResponse(index, plaque, VehiculeUpdateResultResponse.OBSOLETE, "Trame plus ancienne que la dernière reçue");
+                case DOUBLON -> new VehiculeUpdateResultResponse(index, plaque, VehiculeUpdateResultResponse.DOUBLON, "Trame déjà reçue");
+                case FUTURE -> new VehiculeUpdateResultResponse(index, plaque, VehiculeUpdateResultResponse.INVALIDE, "Horodatage dans le futur");
+                case ACCEPTEE -> {
+                    if (!deadBand.significative(request)) {
+                        Instant battement = request.timestamp() != null ? request.timestamp().toInstant() : Instant.now();
+                        enchainer(majs, idVehicule.get(), vehicule -> battre(vehicule, battement));
+                        yield new VehiculeUpdateResultResponse(index, plaque, VehiculeUpdateResultResponse.INCHANGE, null);
+                    }
+                    positionBuffer.offer(request);
+                    historiqueWriter.ajouter(idVehicule.get(),
+                            request.timestamp() != null ? request.timestamp().toInstant() : Instant.now(),
+                            request.lat(), request.lon());
+                    enchainer(majs, idVehicule.get(), vehicule -> positionner(vehicule, request));
+                    vehiculesAppliques.add(idVehicule.get());
+                    yield new VehiculeUpdateResultResponse(index, plaque, VehiculeUpdateResultResponse.APPLIQUE, null);
+                }
+            };
+        }
+
+        // Un battement de bande morte n'avance que la dernière position connue : pas de diffusion
+        List<VehiculeSnapshotResponse> snapshots = flotte.modifier(majs).stream()
+                .filter(snapshot -> vehiculesAppliques.contains(snapshot.id()))
+                .toList();
+        if (!snapshots.isEmpty()) {
+            sseService.broadcast("vehicules", snapshots);
+        }
+        return List.of(resultats);
+    }
+
+    public Map<String, Long> statistiquesTelemetrie() {
+        Map<String, Long> statistiques = new TreeMap<>(watermarks.statistiques());
+        statistiques.putAll(deadBand.statistiques());
+        statistiques.putAll(historiqueWriter.statistiques());
+        statistiques.putAll(sseService.statistiques());
+        return statistiques;
     }
 
     public List<VehiculeSnapshotResponse> snapshots() {
-        return vehiculeRepository.findSnapshots();
+        return flotte.vehicules();
+    }
+
+    public FlotteEtatStore.Flotte flotte() {
+        return flotte.flotte();
+    }
+
+    // Plusieurs trames d'un même véhicule dans un lot s'appliquent dans l'ordre (null : inchangé)
+    private static void enchainer(Map<UUID, UnaryOperator<VehiculeSnapshotResponse>> majs, UUID idVehicule,
+                                  UnaryOperator<VehiculeSnapshotResponse> maj) {
+        majs.merge(idVehicule, maj, (avant, apres) -> vehicule -> {
+            VehiculeSnapshotResponse intermediaire = avant.apply(vehicule);
+            VehiculeSnapshotResponse resultat = apres.apply(intermediaire != null ? intermediaire : vehicule);
+            return resultat != null ? resultat : intermediaire;
+        });
+    }
+
+    private static VehiculeSnapshotResponse positionner(VehiculeSnapshotResponse snapshot, VehiculeUpdateRequest trame) {
+        if (snapshot == null) {
+            return null;
+        }
+        List<EquipementContenanceResponse> equipements = snapshot.equipements();
+        if (trame.ressources() != null && !trame.ressources().isEmpty()) {
+            equipements = new ArrayList<>(snapshot.equipements().size());
+            for (EquipementContenanceResponse equipement : snapshot.equipements()) {
+                Integer contenance = contenance(trame.ressources(), equipement.nomEquipement());
+                equipements.add(contenance != null
+                        ? new EquipementContenanceResponse(equipement.nomEquipement(), contenance)
+                        : equipement);
+            }
+        }
+        return new VehiculeSnapshotResponse(
+                snapshot.id(),
+                snapshot.plaqueImmat(),
+                trame.lat(),
+                trame.lon(),
+                trame.timestamp() != null ? trame.timestamp().withOffsetSameInstant(ZoneOffset.UTC) : snapshot.dernierePositionConnue(),
+                snapshot.statut(),
+                snapshot.caserne(),
+                equipements
+        );
+    }
+
+    private static VehiculeSnapshotResponse battre(VehiculeSnapshotResponse snapshot, Instant battement) {
+        if (snapshot == null || (snapshot.dernierePositionConnue() != null
+                && !battement.isAfter(snapshot.dernierePositionConnue().toInstant()))) {
+            return null;
+        }
+        return new VehiculeSnapshotResponse(snapshot.id(), snapshot.plaqueImmat(), snapshot.latitude(), snapshot.longitude(),
+                battement.atOffset(ZoneOffset.UTC), snapshot.statut(), snapshot.caserne(), snapshot.equipements());
+    }
+
+    private static Integer contenance(Map<String, Integer> ressources, String nomEquipement) {
+        for (Map.Entry<String, Integer> entry : ressources.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(nomEquipement)) {
+                return entry.getValue();
+            }
+        }
+        return null;
     }
 
     public void broadcastAll() {
@@ -62,11 +247,20 @@ public class VehiculeService {
     }
 
     public void setVehiculeEnIntervention(VehiculeStatusUpdateRequest request) {
-        vehiculeRepository.updateVehiculeStatutEnIntervention(request.idVehicule());
-        vehiculeRepository.findSnapshotById(request.idVehicule())
+        if (vehiculeRepository.updateVehiculeStatutEnIntervention(request.idVehicule())) {
+            flotte.majStatut(request.idVehicule(), "En intervention");
+        }
+        flotte.vehicule(request.idVehicule())
                 .ifPresent(snapshot -> sseService.broadcast("vehicules", List.of(snapshot)));
     }
 
+    public List<PositionHistoriqueResponse> getHistorique(UUID idVehicule, Instant debut, Instant fin) {
+        if (!debut.isBefore(fin)) {
+            throw new IllegalArgumentException("La date de début doit précéder la date de fin");
+        }
+        return historiqueRepository.findTrace(idVehicule, debut, fin, historiqueLimite);
+    }
+
     public List<EquipementVehiculeResponse> getEquipements(UUID idVehicule) {
         return vehiculeRepository.findEquipementsByVehiculeId(idVehicule);
     }
@@ -78,7 +272,7 @@ public class VehiculeService {
 
     public UUID creerVehicule(VehiculeCreateRequest request) {
         UUID idVehicule = vehiculeRepository.createVehicule(request);
-        vehiculeRepository.findSnapshotById(idVehicule)
+        flotte.rafraichir(idVehicule)
                 .ifPresent(snapshot -> sseService.broadcast("vehicules", List.of(snapshot)));
         return idVehicule;
     }
@@ -0,0 +1,54 @@
+-- Journal des modifications pour la synchronisation incrémentale (GET /api/sync?since=).
+-- Une ligne par entité, portant l'identifiant (xid8) de la dernière transaction qui l'a modifiée : le journal
+-- reste borné par le nombre d'entités. Les suppressions sont conservées comme pierres tombales.
+-- La version servie aux clients est le xmin du snapshot courant : toute transaction d'identifiant inférieur
+-- est terminée, donc aucune écriture validée tardivement ne peut passer sous la version déjà servie.
+CREATE TABLE IF NOT EXISTS journal_modification (
+    entite TEXT NOT NULL,
+    id_entite UUID NOT NULL,
+    id_secondaire UUID NOT NULL DEFAULT '00000000-0000-0000-0000-000000000000',
+    version XID8 NOT NULL,
+    supprime BOOLEAN NOT NULL DEFAULT FALSE,
+    PRIMARY KEY (entite, id_entite, id_secondaire)
+);
+
+CREATE INDEX IF NOT EXISTS journal_modification_version_idx ON journal_modification (version);
+
+-- Arguments : nom de l'entité, colonne identifiant, colonne identifiant secondaire (facultative)
+CREATE OR REPLACE FUNCTION journaliser_modification() RETURNS trigger AS $$
+DECLARE
+    ligne JSONB;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        ligne := to_jsonb(OLD);
+    ELSE
+        ligne := to_jsonb(NEW);
+    END IF;
+    INSERT INTO journal_modification (entite, id_entite, id_secondaire, version, supprime)
+    VALUES (TG_ARGV[0],
+            (ligne ->> TG_ARGV[1])::uuid,
+            COALESCE((ligne ->> TG_ARGV[2])::uuid, '00000000-0000-0000-0000-000000000000'),
+            pg_current_xact_id(),
+            TG_OP = 'DELETE' AND TG_TABLE_NAME = TG_ARGV[0])
+    ON CONFLICT (entite, id_entite, id_secondaire)
+        DO UPDATE SET version = EXCLUDED.version, supprime = EXCLUDED.supprime;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS vehicule_journal ON vehicule;
+CREATE TRIGGER vehicule_journal AFTER INSERT OR UPDATE OR DELETE ON vehicule
+    FOR EACH ROW EXECUTE FUNCTION journaliser_modification('vehicule', 'id_vehicule');
+
+-- Les contenances d'équipement font partie du snapshot véhicule
+DROP TRIGGER IF EXISTS est_equipe_de_journal ON est_equipe_de;
+CREATE TRIGGER est_equipe_de_journal AFTER INSERT OR UPDATE OR DELETE ON est_equipe_de
+    FOR EACH ROW EXECUTE FUNCTION journaliser_modification('vehicule', 'id_vehicule');
+
+DROP TRIGGER IF EXISTS evenement_journal ON evenement;
+CREATE TRIGGER evenement_journal AFTER INSERT OR UPDATE OR DELETE ON evenement
+    FOR EACH ROW EXECUTE FUNCTION journaliser_modification('evenement', 'id_evenement');
+
+DROP TRIGGER IF EXISTS intervention_journal ON intervention;
+CREATE TRIGGER intervention_journal AFTER INSERT OR UPDATE OR DELETE ON intervention
+    FOR EACH ROW EXECUTE FUNCTION journaliser_modification('intervention', 'id_evenement', 'id_vehicule');
@@ -0,0 +1,54 @@
+-- Notifications d'invalidation des caches de l'API (canal sdmis_invalidation, écouté par InvalidationListener).
+-- Chaque écriture, qu'elle vienne d'une instance de l'API ou d'un outil d'administration (pgAdmin), est signalée
+-- après validation de la transaction ; les notifications identiques d'une même transaction sont fusionnées.
+-- "source" porte l'application_name de la session : une instance ignore l'écho de ses propres écritures.
+CREATE OR REPLACE FUNCTION notifier_invalidation() RETURNS trigger AS $$
+DECLARE
+    ligne JSONB;
+BEGIN
+    IF TG_LEVEL = 'ROW' THEN
+        IF TG_OP = 'DELETE' THEN
+            ligne := to_jsonb(OLD);
+        ELSE
+            ligne := to_jsonb(NEW);
+        END IF;
+    END IF;
+    PERFORM pg_notify('sdmis_invalidation', json_build_object(
+            'table', TG_TABLE_NAME,
+            'op', TG_OP,
+            'id', ligne ->> TG_ARGV[0],
+            'source', current_setting('application_name'))::text);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Entités : une notification par ligne (identifiant transmis)
+DROP TRIGGER IF EXISTS vehicule_invalidation ON vehicule;
+CREATE TRIGGER vehicule_invalidation AFTER INSERT OR UPDATE OR DELETE ON vehicule
+    FOR EACH ROW EXECUTE FUNCTION notifier_invalidation('id_vehicule');
+
+DROP TRIGGER IF EXISTS est_equipe_de_invalidation ON est_equipe_de;
+CREATE TRIGGER est_equipe_de_invalidation AFTER INSERT OR UPDATE OR DELETE ON est_equipe_de
+    FOR EACH ROW EXECUTE FUNCTION notifier_invalidation('id_vehicule');
+
+DROP TRIGGER IF EXISTS evenement_invalidation ON evenement;
+CREATE TRIGGER evenement_invalidation AFTER INSERT OR UPDATE OR DELETE ON evenement
+    FOR EACH ROW EXECUTE FUNCTION notifier_invalidation('id_evenement');
+
+DROP TRIGGER IF EXISTS intervention_invalidation ON intervention;
+CREATE TRIGGER intervention_invalidation AFTER INSERT OR UPDATE OR DELETE ON intervention
+    FOR EACH ROW EXECUTE FUNCTION notifier_invalidation('id_evenement');
+
+-- Tables de référence : une notification par instruction, le cache est rechargé en entier
+DO $$
+DECLARE
+    nom TEXT;
+BEGIN
+    FOREACH nom IN ARRAY ARRAY['statut_intervention', 'statut_vehicule', 'statut_evenement', 'severite',
+                               'type_evenement', 'equipement', 'caserne'] LOOP
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON %I', nom || '_invalidation', nom);
+        EXECUTE format('CREATE TRIGGER %I AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON %I '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION notifier_invalidation()', nom || '_invalidation', nom);
+    END LOOP;
+END;
+$$;
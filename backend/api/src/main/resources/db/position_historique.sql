@@ -0,0 +1,11 @@
+-- Historique des positions véhicules (append-only), partitionné par mois sur l'horodatage.
+-- Les partitions mensuelles sont créées à la demande par l'API (PositionHistoriqueRepository).
+CREATE TABLE IF NOT EXISTS position_historique (
+    id_vehicule UUID NOT NULL,
+    horodatage TIMESTAMPTZ NOT NULL,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL
+) PARTITION BY RANGE (horodatage);
+
+CREATE INDEX IF NOT EXISTS position_historique_vehicule_horodatage_idx
+    ON position_historique (id_vehicule, horodatage);